@@ -0,0 +1,57 @@
+package com.acme.reliable.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import java.time.Duration;
+
+/**
+ * Configuration for the pool of transacted JMS sessions used to send to IBM MQ.
+ */
+@ConfigurationProperties("mq.session-pool")
+public class MqSessionPoolConfig {
+
+    private int connections = 2;          // Sessions are spread round-robin across these connections
+    private int maxSessions = 32;         // Hard cap on concurrently borrowed sessions (queue manager channel usage)
+    private Duration borrowTimeout = Duration.ofSeconds(5);
+    private Duration idleTimeout = Duration.ofMinutes(5);
+    private Duration evictionInterval = Duration.ofSeconds(30);
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    public Duration getBorrowTimeout() {
+        return borrowTimeout;
+    }
+
+    public void setBorrowTimeout(Duration borrowTimeout) {
+        this.borrowTimeout = borrowTimeout;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(Duration evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+}
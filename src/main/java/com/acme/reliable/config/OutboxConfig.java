@@ -0,0 +1,93 @@
+package com.acme.reliable.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import java.time.Duration;
+
+/**
+ * Configuration for outbox table maintenance.
+ */
+@ConfigurationProperties("outbox")
+public class OutboxConfig {
+
+    private boolean partitionMaintenanceEnabled = true;
+    private Duration partitionMaintenanceInterval = Duration.ofHours(1);
+    private int partitionsAhead = 3;                      // Daily partitions created ahead of today
+    private Duration retention = Duration.ofDays(7);      // Fully published partitions older than this are dropped
+    private PublishMode publishMode = PublishMode.MARK;
+    private boolean history = true;                       // DELETE mode: keep minimal metadata in outbox_history
+    private Duration historyRetention = Duration.ofDays(30); // outbox_history partitions older than this are dropped
+
+    /**
+     * What happens to an outbox row once it has been published.
+     */
+    public enum PublishMode {
+        /** The row stays in the outbox with status PUBLISHED until its partition is dropped. */
+        MARK,
+        /** The row is deleted when it is finalized, so the outbox only holds in-flight work. */
+        DELETE
+    }
+
+    public boolean isPartitionMaintenanceEnabled() {
+        return partitionMaintenanceEnabled;
+    }
+
+    public void setPartitionMaintenanceEnabled(boolean partitionMaintenanceEnabled) {
+        this.partitionMaintenanceEnabled = partitionMaintenanceEnabled;
+    }
+
+    public Duration getPartitionMaintenanceInterval() {
+        return partitionMaintenanceInterval;
+    }
+
+    public void setPartitionMaintenanceInterval(Duration partitionMaintenanceInterval) {
+        this.partitionMaintenanceInterval = partitionMaintenanceInterval;
+    }
+
+    public int getPartitionsAhead() {
+        return partitionsAhead;
+    }
+
+    public void setPartitionsAhead(int partitionsAhead) {
+        this.partitionsAhead = partitionsAhead;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+
+    public PublishMode getPublishMode() {
+        return publishMode;
+    }
+
+    public void setPublishMode(PublishMode publishMode) {
+        this.publishMode = publishMode;
+    }
+
+    public boolean isHistory() {
+        return history;
+    }
+
+    public void setHistory(boolean history) {
+        this.history = history;
+    }
+
+    public Duration getHistoryRetention() {
+        return historyRetention;
+    }
+
+    public void setHistoryRetention(Duration historyRetention) {
+        this.historyRetention = historyRetention;
+    }
+
+    public int getRetentionDays() {
+        return (int) Math.max(1, retention.toDays());
+    }
+
+    public int getHistoryRetentionDays() {
+        return (int) Math.max(1, historyRetention.toDays());
+    }
+}
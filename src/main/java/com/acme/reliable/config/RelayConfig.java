@@ -0,0 +1,312 @@
+package com.acme.reliable.config;
+
+import com.acme.reliable.spi.OutboxStore;
+import io.micronaut.context.annotation.ConfigurationProperties;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration for the outbox relay: wakeups, claiming and dispatch.
+ */
+@ConfigurationProperties("relay")
+public class RelayConfig {
+
+    private boolean notifyEnabled = true;
+    private Duration notifyGrace = Duration.ofMillis(100);  // Gives the fast path a head start before a sweep
+    private Duration claimLease = Duration.ofMinutes(3);   // Must outlast a publish round-trip (Kafka delivery timeout is 2m)
+    private Duration ackTimeout = Duration.ofMinutes(2);   // Longest the relay waits for broker acks of one batch
+    private int fastPathQueueCapacity = 10_000;             // Committed rows waiting for a publisher thread; overflow goes to the sweep
+    private int fastPathThreads = 2;
+    private int fastPathBatchSize = 200;                    // Most rows one publisher thread claims and publishes at once
+    private int lanes = 4;                                  // Key-hashed publish lanes; each takes a JMS session while busy
+    private String nodeId;                                  // Identifies this relay in claimed_by and shard leases; defaults to host-pid
+    private boolean shardingEnabled = true;
+    private Duration shardHeartbeat = Duration.ofSeconds(5); // Shard leases last three heartbeats
+    private Duration reaperInterval = Duration.ofSeconds(30);
+    private int reaperBatchSize = 500;                      // Rows returned to NEW per statement
+    private Duration backlogSampleInterval = Duration.ofSeconds(15); // How often the backlog gauges are refreshed
+    private boolean sweepEnabled = true;                    // Adaptive sweep loop; timeout.outbox-batch-size is its starting batch
+    private int sweepMinBatchSize = 100;
+    private int sweepMaxBatchSize = 10_000;
+    private Duration sweepTargetLatency = Duration.ofSeconds(1); // Claim plus publish time per batch the batch size is tuned toward
+    private Duration sweepMinInterval = Duration.ofMillis(50);   // First idle backoff; doubles up to timeout.outbox-sweep-interval
+    private int breakerFailureThreshold = 3;                // Consecutive failed batches that open a destination's circuit
+    private Duration breakerOpenDuration = Duration.ofSeconds(30); // How long an open circuit waits before a probe batch
+    private List<Integer> priorityWeights = List.of(8, 4, 1);      // Claim share per round for high, normal and low priority rows
+    private Engine engine = Engine.POLLING;
+    private String replicationSlot = "outbox_relay";               // Logical slot the replication engine streams from
+    private String replicationPublication = "outbox_pub";          // Publication of outbox inserts (created by V8)
+    private Duration replicationStatusInterval = Duration.ofSeconds(10); // How often the confirmed LSN is reported back
+    private int replicationMaxAttempts = 10;                       // Publish attempts of a streamed row before it is parked
+
+    /**
+     * How committed outbox rows reach the brokers.
+     */
+    public enum Engine {
+        /** Rows are claimed, published and finalized by the fast path and the sweep loops. */
+        POLLING,
+        /** Inserts are streamed from a logical replication slot in commit order; rows are never updated. */
+        REPLICATION
+    }
+
+    public boolean isNotifyEnabled() {
+        return notifyEnabled;
+    }
+
+    public void setNotifyEnabled(boolean notifyEnabled) {
+        this.notifyEnabled = notifyEnabled;
+    }
+
+    public Duration getNotifyGrace() {
+        return notifyGrace;
+    }
+
+    public void setNotifyGrace(Duration notifyGrace) {
+        this.notifyGrace = notifyGrace;
+    }
+
+    public long getNotifyGraceMillis() {
+        return notifyGrace.toMillis();
+    }
+
+    public Duration getClaimLease() {
+        return claimLease;
+    }
+
+    public void setClaimLease(Duration claimLease) {
+        this.claimLease = claimLease;
+    }
+
+    public long getClaimLeaseMillis() {
+        return claimLease.toMillis();
+    }
+
+    public Duration getAckTimeout() {
+        return ackTimeout;
+    }
+
+    public void setAckTimeout(Duration ackTimeout) {
+        this.ackTimeout = ackTimeout;
+    }
+
+    public long getAckTimeoutMillis() {
+        return ackTimeout.toMillis();
+    }
+
+    public int getFastPathQueueCapacity() {
+        return fastPathQueueCapacity;
+    }
+
+    public void setFastPathQueueCapacity(int fastPathQueueCapacity) {
+        this.fastPathQueueCapacity = fastPathQueueCapacity;
+    }
+
+    public int getFastPathThreads() {
+        return fastPathThreads;
+    }
+
+    public void setFastPathThreads(int fastPathThreads) {
+        this.fastPathThreads = fastPathThreads;
+    }
+
+    public int getFastPathBatchSize() {
+        return fastPathBatchSize;
+    }
+
+    public void setFastPathBatchSize(int fastPathBatchSize) {
+        this.fastPathBatchSize = fastPathBatchSize;
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(int lanes) {
+        this.lanes = lanes;
+    }
+
+    public String getNodeId() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = defaultNodeId();
+        }
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public boolean isShardingEnabled() {
+        return shardingEnabled;
+    }
+
+    public void setShardingEnabled(boolean shardingEnabled) {
+        this.shardingEnabled = shardingEnabled;
+    }
+
+    public Duration getShardHeartbeat() {
+        return shardHeartbeat;
+    }
+
+    public void setShardHeartbeat(Duration shardHeartbeat) {
+        this.shardHeartbeat = shardHeartbeat;
+    }
+
+    public long getShardHeartbeatMillis() {
+        return shardHeartbeat.toMillis();
+    }
+
+    public Duration getReaperInterval() {
+        return reaperInterval;
+    }
+
+    public void setReaperInterval(Duration reaperInterval) {
+        this.reaperInterval = reaperInterval;
+    }
+
+    public Duration getBacklogSampleInterval() {
+        return backlogSampleInterval;
+    }
+
+    public void setBacklogSampleInterval(Duration backlogSampleInterval) {
+        this.backlogSampleInterval = backlogSampleInterval;
+    }
+
+    public int getReaperBatchSize() {
+        return reaperBatchSize;
+    }
+
+    public void setReaperBatchSize(int reaperBatchSize) {
+        this.reaperBatchSize = reaperBatchSize;
+    }
+
+    public boolean isSweepEnabled() {
+        return sweepEnabled;
+    }
+
+    public void setSweepEnabled(boolean sweepEnabled) {
+        this.sweepEnabled = sweepEnabled;
+    }
+
+    public int getSweepMinBatchSize() {
+        return sweepMinBatchSize;
+    }
+
+    public void setSweepMinBatchSize(int sweepMinBatchSize) {
+        this.sweepMinBatchSize = sweepMinBatchSize;
+    }
+
+    public int getSweepMaxBatchSize() {
+        return sweepMaxBatchSize;
+    }
+
+    public void setSweepMaxBatchSize(int sweepMaxBatchSize) {
+        this.sweepMaxBatchSize = sweepMaxBatchSize;
+    }
+
+    public Duration getSweepTargetLatency() {
+        return sweepTargetLatency;
+    }
+
+    public void setSweepTargetLatency(Duration sweepTargetLatency) {
+        this.sweepTargetLatency = sweepTargetLatency;
+    }
+
+    public Duration getSweepMinInterval() {
+        return sweepMinInterval;
+    }
+
+    public void setSweepMinInterval(Duration sweepMinInterval) {
+        this.sweepMinInterval = sweepMinInterval;
+    }
+
+    public int getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public void setBreakerFailureThreshold(int breakerFailureThreshold) {
+        this.breakerFailureThreshold = breakerFailureThreshold;
+    }
+
+    public Duration getBreakerOpenDuration() {
+        return breakerOpenDuration;
+    }
+
+    public void setBreakerOpenDuration(Duration breakerOpenDuration) {
+        this.breakerOpenDuration = breakerOpenDuration;
+    }
+
+    public List<Integer> getPriorityWeights() {
+        return priorityWeights;
+    }
+
+    public void setPriorityWeights(List<Integer> priorityWeights) {
+        this.priorityWeights = priorityWeights;
+    }
+
+    /**
+     * One weight per priority level, missing or non-positive entries counted as 1.
+     */
+    public int[] getPriorityWeightArray() {
+        int[] weights = new int[OutboxStore.OutboxRow.PRIORITY_LEVELS];
+        for (int i = 0; i < weights.length; i++) {
+            Integer w = i < priorityWeights.size() ? priorityWeights.get(i) : null;
+            weights[i] = w == null ? 1 : Math.max(1, w);
+        }
+        return weights;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public boolean isPolling() {
+        return engine == Engine.POLLING;
+    }
+
+    public String getReplicationSlot() {
+        return replicationSlot;
+    }
+
+    public void setReplicationSlot(String replicationSlot) {
+        this.replicationSlot = replicationSlot;
+    }
+
+    public String getReplicationPublication() {
+        return replicationPublication;
+    }
+
+    public void setReplicationPublication(String replicationPublication) {
+        this.replicationPublication = replicationPublication;
+    }
+
+    public Duration getReplicationStatusInterval() {
+        return replicationStatusInterval;
+    }
+
+    public void setReplicationStatusInterval(Duration replicationStatusInterval) {
+        this.replicationStatusInterval = replicationStatusInterval;
+    }
+
+    public int getReplicationMaxAttempts() {
+        return replicationMaxAttempts;
+    }
+
+    public void setReplicationMaxAttempts(int replicationMaxAttempts) {
+        this.replicationMaxAttempts = replicationMaxAttempts;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = java.net.InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown-host";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
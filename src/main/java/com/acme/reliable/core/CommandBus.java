@@ -2,6 +2,8 @@ package com.acme.reliable.core;
 
 import com.acme.reliable.spi.CommandStore;
 import com.acme.reliable.spi.OutboxStore;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
 import jakarta.inject.Singleton;
 import jakarta.transaction.Transactional;
 import java.util.Map;
@@ -13,22 +15,32 @@ public class CommandBus {
     private final OutboxStore outboxStore;
     private final Outbox outbox;
     private final FastPathPublisher fastPath;
+    private final Tracing tracing;
 
-    public CommandBus(CommandStore c, OutboxStore os, Outbox o, FastPathPublisher f) {
+    public CommandBus(CommandStore c, OutboxStore os, Outbox o, FastPathPublisher f, Tracing t) {
         this.commands = c;
         this.outboxStore = os;
         this.outbox = o;
         this.fastPath = f;
+        this.tracing = t;
     }
 
     @Transactional
     public UUID accept(String name, String idem, String bizKey, String payload, Map<String,String> reply) {
-        if (commands.existsByIdempotencyKey(idem)) {
-            throw new IllegalStateException("Duplicate idempotency key");
+        // A child of the HTTP server span; the outbox row carries this span's context to the relay
+        return tracing.inSpan("accept " + name, SpanKind.INTERNAL, Context.current(),
+            () -> acceptTraced(name, idem, bizKey, payload, reply));
+    }
+
+    private UUID acceptTraced(String name, String idem, String bizKey, String payload, Map<String,String> reply) {
+        var accepted = commands.savePendingIfAbsent(name, idem, bizKey, payload, Jsons.toJson(reply));
+        if (!accepted.created()) {
+            throw new DuplicateCommandException(accepted.id(), accepted.status());
         }
-        UUID id = commands.savePending(name, idem, bizKey, payload, Jsons.toJson(reply));
-        UUID outboxId = outboxStore.addReturningId(outbox.rowCommandRequested(name, id, bizKey, payload, reply));
-        fastPath.registerAfterCommit(outboxId);
+        UUID id = accepted.id();
+        var row = outbox.rowCommandRequested(name, id, bizKey, payload, reply);
+        outboxStore.addReturningId(row);
+        fastPath.registerAfterCommit(row);
         return id;
     }
 }
@@ -0,0 +1,26 @@
+package com.acme.reliable.core;
+
+import java.util.UUID;
+
+/**
+ * Thrown when a command is submitted with an idempotency key that was already accepted.
+ * Carries the original command so callers can answer with it instead of failing.
+ */
+public class DuplicateCommandException extends IllegalStateException {
+    private final UUID commandId;
+    private final String status;
+
+    public DuplicateCommandException(UUID commandId, String status) {
+        super("Duplicate idempotency key");
+        this.commandId = commandId;
+        this.status = status;
+    }
+
+    public UUID getCommandId() {
+        return commandId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
@@ -3,13 +3,16 @@ package com.acme.reliable.core;
 import com.acme.reliable.config.MessagingConfig;
 import com.acme.reliable.config.TimeoutConfig;
 import com.acme.reliable.spi.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.inject.Singleton;
 import jakarta.transaction.Transactional;
 import java.time.Instant;
+import java.util.List;
 
 @Singleton
 public class Executor {
-    private final InboxStore inbox;
+    private final ExecutionStore execution;
     private final CommandStore commands;
     private final OutboxStore outboxStore;
     private final Outbox outbox;
@@ -17,12 +20,13 @@ public class Executor {
     private final HandlerRegistry registry;
     private final FastPathPublisher fastPath;
     private final MessagingConfig messagingConfig;
+    private final MeterRegistry meterRegistry;
     private final long leaseSeconds;
 
-    public Executor(InboxStore i, CommandStore c, OutboxStore os, Outbox o, DlqStore d,
+    public Executor(ExecutionStore e, CommandStore c, OutboxStore os, Outbox o, DlqStore d,
                     HandlerRegistry r, FastPathPublisher f, TimeoutConfig timeoutConfig,
-                    MessagingConfig messagingConfig) {
-        this.inbox = i;
+                    MessagingConfig messagingConfig, MeterRegistry meterRegistry) {
+        this.execution = e;
         this.commands = c;
         this.outboxStore = os;
         this.outbox = o;
@@ -30,40 +34,67 @@ public class Executor {
         this.registry = r;
         this.fastPath = f;
         this.messagingConfig = messagingConfig;
+        this.meterRegistry = meterRegistry;
         this.leaseSeconds = timeoutConfig.getCommandLeaseSeconds();
     }
 
     @Transactional
     public void process(Envelope env) {
-        if (!inbox.markIfAbsent(env.messageId().toString(), "CommandExecutor")) {
-            return;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            outcome = execute(env);
+        } catch (RetryableBusinessException | TransientException e) {
+            outcome = "retry";
+            throw e;
+        } finally {
+            // Handler and database work only; the commit happens after this method returns
+            sample.stop(Timer.builder("command.process")
+                .description("Command handling time by command name and outcome")
+                // The name comes from the message; only names a handler knows become tag values
+                .tag("command", registry.handles(env.name()) ? env.name() : "unknown")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        }
+    }
+
+    private String execute(Envelope env) {
+        // Inbox dedupe and the RUNNING transition share one round-trip, as do the success writes below
+        if (!execution.begin(env.messageId().toString(), "CommandExecutor", env.commandId(),
+                Instant.now().plusSeconds(leaseSeconds))) {
+            return "duplicate";
         }
-        commands.markRunning(env.commandId(), Instant.now().plusSeconds(leaseSeconds));
         try {
             String resultJson = registry.invoke(env.name(), env.payload());
-            commands.markSucceeded(env.commandId());
-            var replyId = outboxStore.addReturningId(outbox.rowMqReply(env, "CommandCompleted", resultJson));
-            var eventId = outboxStore.addReturningId(outbox.rowKafkaEvent(
-                messagingConfig.getTopicNaming().buildEventTopic(env.name()),
-                env.key(),
-                "CommandCompleted",
-                Aggregates.snapshot(env.key())
-            ));
-            fastPath.registerAfterCommit(replyId);
-            fastPath.registerAfterCommit(eventId);
+            var rows = List.of(
+                outbox.rowMqReply(env, "CommandCompleted", resultJson),
+                outbox.rowKafkaEvent(
+                    messagingConfig.getTopicNaming().buildEventTopic(env.name()),
+                    env.key(),
+                    "CommandCompleted",
+                    Aggregates.snapshot(env.key())
+                )
+            );
+            execution.complete(env.commandId(), rows);
+            rows.forEach(fastPath::registerAfterCommit);
+            return "completed";
         } catch (PermanentException e) {
             commands.markFailed(env.commandId(), e.getMessage());
             dlq.park(env.commandId(), env.name(), env.key(), env.payload(), "FAILED", "Permanent", e.getMessage(), 0, "worker");
-            var replyId = outboxStore.addReturningId(outbox.rowMqReply(env, "CommandFailed", Jsons.of("error", e.getMessage())));
-            var eventId = outboxStore.addReturningId(outbox.rowKafkaEvent(
+            var reply = outbox.rowMqReply(env, "CommandFailed", Jsons.of("error", e.getMessage()));
+            var event = outbox.rowKafkaEvent(
                 messagingConfig.getTopicNaming().buildEventTopic(env.name()),
                 env.key(),
                 "CommandFailed",
                 Jsons.of("error", e.getMessage())
-            ));
-            fastPath.registerAfterCommit(replyId);
-            fastPath.registerAfterCommit(eventId);
+            );
+            outboxStore.addReturningId(reply);
+            outboxStore.addReturningId(event);
+            fastPath.registerAfterCommit(reply);
+            fastPath.registerAfterCommit(event);
             // Don't re-throw for permanent failures - we want to commit the DLQ entry and failure state
+            return "failed";
         } catch (RetryableBusinessException | TransientException e) {
             commands.bumpRetry(env.commandId(), e.getMessage());
             throw e;
@@ -72,5 +103,8 @@ public class Executor {
 
     public interface HandlerRegistry {
         String invoke(String name, String payload);
+
+        /** Whether {@link #invoke} has a handler for commands of this name. */
+        boolean handles(String name);
     }
 }
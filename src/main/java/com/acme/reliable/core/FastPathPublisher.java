@@ -1,33 +1,58 @@
 package com.acme.reliable.core;
 
-import com.acme.reliable.relay.OutboxRelay;
+import com.acme.reliable.relay.FastPathDispatcher;
+import com.acme.reliable.spi.OutboxStore.OutboxRow;
 import io.micronaut.transaction.TransactionOperations;
 import io.micronaut.transaction.support.TransactionSynchronization;
 import jakarta.inject.Singleton;
 import java.sql.Connection;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
+/**
+ * Hands outbox rows to the {@link FastPathDispatcher} right after their transaction commits. All rows
+ * registered in one transaction share a single synchronization and are submitted together.
+ * <p>
+ * The batch is bound to the transaction's connection: a transaction that joins an outer one shares its batch,
+ * while a {@code REQUIRES_NEW} transaction has its own, submitted when that transaction commits.
+ */
 @Singleton
 public class FastPathPublisher {
     private final TransactionOperations<Connection> transactionOps;
-    private final OutboxRelay relay;
+    private final FastPathDispatcher dispatcher;
+    // Weak keys, so a batch whose synchronization never ran does not outlive its connection
+    private final Map<Object, List<OutboxRow>> pending = Collections.synchronizedMap(new WeakHashMap<>());
 
-    public FastPathPublisher(TransactionOperations<Connection> transactionOps, OutboxRelay relay) {
+    public FastPathPublisher(TransactionOperations<Connection> transactionOps, FastPathDispatcher dispatcher) {
         this.transactionOps = transactionOps;
-        this.relay = relay;
+        this.dispatcher = dispatcher;
     }
 
-    public void registerAfterCommit(UUID outboxId) {
+    public void registerAfterCommit(OutboxRow row) {
         transactionOps.findTransactionStatus().ifPresent(status -> {
+            Object transaction = status.getConnection();
+            List<OutboxRow> rows = pending.get(transaction);
+            if (rows != null) {
+                rows.add(row);
+                return;
+            }
+            List<OutboxRow> batch = new ArrayList<>();
+            batch.add(row);
             status.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
-                    try {
-                        relay.publishNow(outboxId);
-                    } catch (Exception ignored) {
-                    }
+                    dispatcher.submit(batch);
+                }
+
+                @Override
+                public void afterCompletion(Status completionStatus) {
+                    pending.remove(transaction);
                 }
             });
+            pending.put(transaction, batch);
         });
     }
 }
@@ -1,64 +1,83 @@
 package com.acme.reliable.core;
 
 import com.acme.reliable.config.MessagingConfig;
+import com.acme.reliable.spi.IdGenerator;
 import com.acme.reliable.spi.OutboxStore.OutboxRow;
 import jakarta.inject.Singleton;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Builds outbox rows. Each row carries the trace headers of the span current when it is built,
+ * so its publish and its consumer join the trace of the request or command that produced it.
+ */
 @Singleton
 public final class Outbox {
 
     private final MessagingConfig config;
+    private final IdGenerator ids;
+    private final Tracing tracing;
 
-    public Outbox(MessagingConfig config) {
+    public Outbox(MessagingConfig config, IdGenerator ids, Tracing tracing) {
         this.config = config;
+        this.ids = ids;
+        this.tracing = tracing;
     }
 
     public OutboxRow rowCommandRequested(String name, UUID id, String key, String payload, Map<String,String> reply) {
         return new OutboxRow(
-            UUID.randomUUID(),
+            ids.newId(),
             "command",
             config.getQueueNaming().buildCommandQueue(name),
             key,
             "CommandRequested",
             payload,
             Jsons.merge(
-                reply,
-                Map.of(
-                    "commandId", id.toString(),
-                    "commandName", name,
-                    "businessKey", key
-                )
+                Jsons.merge(
+                    reply,
+                    Map.of(
+                        "commandId", id.toString(),
+                        "commandName", name,
+                        "businessKey", key
+                    )
+                ),
+                tracing.currentHeaders()
             ),
-            0
+            0,
+            OutboxRow.PRIORITY_NORMAL
         );
     }
 
     public OutboxRow rowKafkaEvent(String topic, String key, String type, String payload) {
         return new OutboxRow(
-            UUID.randomUUID(),
+            ids.newId(),
             "event",
             topic,
             key,
             type,
             payload,
-            Map.of(),
-            0
+            tracing.currentHeaders(),
+            0,
+            OutboxRow.PRIORITY_LOW
         );
     }
 
     public OutboxRow rowMqReply(Envelope env, String type, String payload) {
         String replyTo = env.headers().getOrDefault("replyTo", config.getQueueNaming().getReplyQueue());
         return new OutboxRow(
-            UUID.randomUUID(),
+            ids.newId(),
             "reply",
             replyTo,
             env.key(),
             type,
             payload,
-            Jsons.merge(env.headers(), Map.of("correlationId", env.correlationId().toString())),
-            0
+            // The processing span replaces the trace context the command arrived with
+            Jsons.merge(
+                Jsons.merge(env.headers(), Map.of("correlationId", env.correlationId().toString())),
+                tracing.currentHeaders()
+            ),
+            0,
+            OutboxRow.PRIORITY_HIGH
         );
     }
 }
@@ -0,0 +1,154 @@
+package com.acme.reliable.core;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import jakarta.inject.Singleton;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * W3C trace-context propagation through message headers, and the spans around each hop of a command.
+ * The context current when an outbox row is built travels in the row's headers ({@code traceparent},
+ * {@code tracestate}), from there in JMS properties and Kafka headers, and is extracted again from the
+ * consumed message, so accept, publish, consume, reply and their database calls end up in one trace.
+ */
+@Singleton
+public class Tracing {
+    public static final String TRACEPARENT = "traceparent";
+    public static final String TRACESTATE = "tracestate";
+
+    private static final TextMapPropagator PROPAGATOR = W3CTraceContextPropagator.getInstance();
+    private static final AttributeKey<String> DB_SYSTEM = AttributeKey.stringKey("db.system");
+    private static final TextMapGetter<Map<String, String>> GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(Map<String, String> carrier) {
+            return carrier.keySet();
+        }
+
+        @Override
+        public String get(Map<String, String> carrier, String key) {
+            return carrier == null ? null : carrier.get(key);
+        }
+    };
+
+    private final Tracer tracer;
+
+    public Tracing(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("reliable-messaging");
+    }
+
+    /**
+     * Tracing that records nothing and adds no headers.
+     */
+    public static Tracing noop() {
+        return new Tracing(OpenTelemetry.noop());
+    }
+
+    /**
+     * Trace headers of the current span; empty when nothing is being traced.
+     */
+    public Map<String, String> currentHeaders() {
+        return headers(Context.current());
+    }
+
+    /**
+     * {@code headers} with their trace headers replaced by those of {@code span}, so the receiver becomes its child.
+     */
+    public Map<String, String> withSpan(Map<String, String> headers, Span span) {
+        var trace = headers(Context.root().with(span));
+        if (trace.isEmpty()) {
+            return headers;
+        }
+        var merged = new HashMap<>(headers);
+        merged.remove(TRACESTATE);
+        merged.putAll(trace);
+        return merged;
+    }
+
+    /**
+     * The remote parent carried in message headers, or the root context when there is none.
+     */
+    public Context extract(Map<String, String> headers) {
+        return headers == null ? Context.root() : PROPAGATOR.extract(Context.root(), headers, GETTER);
+    }
+
+    public Span startSpan(String name, SpanKind kind, Context parent) {
+        return tracer.spanBuilder(name).setSpanKind(kind).setParent(parent).startSpan();
+    }
+
+    /**
+     * Runs {@code work} in a new current span, recording a thrown exception on it.
+     */
+    public <T> T inSpan(String name, SpanKind kind, Context parent, Supplier<T> work) {
+        Span span = startSpan(name, kind, parent);
+        try (Scope ignored = span.makeCurrent()) {
+            return work.get();
+        } catch (RuntimeException | Error e) {
+            fail(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    public void runInSpan(String name, SpanKind kind, Context parent, Runnable work) {
+        inSpan(name, kind, parent, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a database call in a client span. Calls outside a traced operation (sweeps, reapers, leases)
+     * are not traced, so background work does not start a trace per statement.
+     */
+    public <T> T inDbSpan(String operation, Supplier<T> work) {
+        if (!Span.current().getSpanContext().isValid()) {
+            return work.get();
+        }
+        Span span = tracer.spanBuilder(operation)
+            .setSpanKind(SpanKind.CLIENT)
+            .setAttribute(DB_SYSTEM, "postgresql")
+            .startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            return work.get();
+        } catch (RuntimeException | Error e) {
+            fail(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Ends a span started with {@link #startSpan}, marking it failed when {@code failure} is not null.
+     */
+    public static void end(Span span, Throwable failure) {
+        if (failure != null) {
+            fail(span, failure);
+        }
+        span.end();
+    }
+
+    private static void fail(Span span, Throwable e) {
+        span.recordException(e);
+        span.setStatus(StatusCode.ERROR, String.valueOf(e.getMessage()));
+    }
+
+    private static Map<String, String> headers(Context context) {
+        Map<String, String> headers = new HashMap<>(4);
+        PROPAGATOR.inject(context, headers, Map::put);
+        return headers;
+    }
+}
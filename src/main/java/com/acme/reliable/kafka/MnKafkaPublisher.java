@@ -3,39 +3,64 @@ package com.acme.reliable.kafka;
 import io.micronaut.context.annotation.Requires;
 import jakarta.inject.Singleton;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @Singleton
 @Requires(beans = KafkaProducer.class)
 public class MnKafkaPublisher implements com.acme.reliable.spi.EventPublisher {
     private static final Logger LOG = LoggerFactory.getLogger(MnKafkaPublisher.class);
-    private final KafkaProducer<String, String> producer;
+    private final Producer<String, String> producer;
 
-    public MnKafkaPublisher(KafkaProducer<String, String> p) {
+    public MnKafkaPublisher(Producer<String, String> p) {
         this.producer = p;
     }
 
+    /**
+     * Blocks until the broker acknowledged the record, so a normal return means it was delivered.
+     */
     @Override
     public void publish(String topic, String key, String value, java.util.Map<String,String> headers) {
+        try {
+            publishAsync(topic, key, value, headers).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re
+                : new RuntimeException("Failed to publish to Kafka topic: " + topic, e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Ack> publishAsync(String topic, String key, String value, java.util.Map<String,String> headers) {
         var rec = new ProducerRecord<String, String>(topic, key, value);
         if (headers != null) {
-            headers.forEach((k, v) -> rec.headers().add(k, v.getBytes()));
+            headers.forEach((k, v) -> rec.headers().add(k, v.getBytes(StandardCharsets.UTF_8)));
         }
 
-        // Send with callback for proper error handling
-        // This prevents silent failures and allows proper error propagation
-        producer.send(rec, (metadata, exception) -> {
-            if (exception != null) {
-                LOG.error("Failed to publish message to topic {}, key {}: {}",
-                    topic, key, exception.getMessage(), exception);
-                // Exception will be caught by OutboxRelay for retry logic
-                throw new RuntimeException("Failed to publish to Kafka topic: " + topic, exception);
-            } else {
-                LOG.debug("Successfully published message to topic {} partition {} offset {}",
-                    metadata.topic(), metadata.partition(), metadata.offset());
-            }
-        });
+        // The callback completes the future, so callers see the broker's ack (or failure) instead of
+        // an exception thrown on the producer's I/O thread where nobody can catch it
+        var ack = new CompletableFuture<Ack>();
+        try {
+            producer.send(rec, (metadata, exception) -> {
+                if (exception != null) {
+                    LOG.error("Failed to publish message to topic {}, key {}: {}",
+                        topic, key, exception.getMessage(), exception);
+                    ack.completeExceptionally(new RuntimeException("Failed to publish to Kafka topic: " + topic, exception));
+                } else {
+                    LOG.debug("Successfully published message to topic {} partition {} offset {}",
+                        metadata.topic(), metadata.partition(), metadata.offset());
+                    ack.complete(new Ack(metadata.topic(), metadata.partition(), metadata.offset()));
+                }
+            });
+        } catch (RuntimeException e) {
+            // send() itself throws for serialization errors, a full buffer past max.block.ms, or a closed producer
+            ack.completeExceptionally(e);
+        }
+        return ack;
     }
 }
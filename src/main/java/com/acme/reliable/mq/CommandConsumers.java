@@ -1,10 +1,12 @@
 package com.acme.reliable.mq;
 
+import com.acme.reliable.core.Tracing;
 import io.micronaut.context.annotation.Requires;
 import io.micronaut.jms.annotations.JMSListener;
 import io.micronaut.jms.annotations.Queue;
 import io.micronaut.jms.annotations.Message;
 import io.micronaut.messaging.annotation.MessageBody;
+import io.opentelemetry.api.trace.SpanKind;
 
 @Requires(beans = IbmMqFactoryProvider.class)
 @Requires(property = "jms.consumers.enabled", value = "true", defaultValue = "false")
@@ -12,23 +14,28 @@ import io.micronaut.messaging.annotation.MessageBody;
 public class CommandConsumers {
     private final com.acme.reliable.core.Executor exec;
     private final com.acme.reliable.core.ResponseRegistry responses;
+    private final Tracing tracing;
 
-    public CommandConsumers(com.acme.reliable.core.Executor e, com.acme.reliable.core.ResponseRegistry r) {
+    public CommandConsumers(com.acme.reliable.core.Executor e, com.acme.reliable.core.ResponseRegistry r, Tracing t) {
         this.exec = e;
         this.responses = r;
+        this.tracing = t;
     }
 
     @Queue("APP.CMD.CreateUser.Q")
     public void onCreateUser(@MessageBody String body, @Message jakarta.jms.Message m) throws jakarta.jms.JMSException {
         var env = Mappers.toEnvelope(body, m);
-        exec.process(env);
+        // A child of the relay's publish span; the reply row picks up this span's context
+        tracing.runInSpan("process " + env.name(), SpanKind.CONSUMER, tracing.extract(env.headers()),
+            () -> exec.process(env));
     }
 
     @Queue("APP.CMD.REPLY.Q")
     public void onReply(@MessageBody String body, @Message jakarta.jms.Message m) throws jakarta.jms.JMSException {
         var commandId = m.getStringProperty("commandId");
         if (commandId != null) {
-            responses.complete(java.util.UUID.fromString(commandId), body);
+            tracing.runInSpan("reply", SpanKind.CONSUMER, tracing.extract(Mappers.traceHeaders(m)),
+                () -> responses.complete(java.util.UUID.fromString(commandId), body));
         }
     }
 }
@@ -34,7 +34,7 @@ public class IbmMqFactoryProvider {
         cf.setIntProperty(com.ibm.msg.client.jakarta.wmq.WMQConstants.WMQ_SHARE_CONV_ALLOWED,
             com.ibm.msg.client.jakarta.wmq.WMQConstants.WMQ_SHARE_CONV_ALLOWED_YES);
 
-        // Note: The PRIMARY performance optimization is session pooling in JmsCommandQueue.java
+        // Note: The PRIMARY performance optimization is session pooling in JmsSessionPool.java
         // Session pooling eliminates the overhead of creating/destroying sessions and producers per message
         // This was the main bottleneck - each message was creating a new session, producer, and transaction
         // Expected improvement: 10-20x throughput increase from session reuse (from ~50 TPS to 500+ TPS)
@@ -1,9 +1,8 @@
 package com.acme.reliable.mq;
 
 import io.micronaut.context.annotation.Requires;
-import jakarta.inject.Named;
+import io.micronaut.context.annotation.Value;
 import jakarta.inject.Singleton;
-import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,117 +10,154 @@ import org.slf4j.LoggerFactory;
 @Requires(beans = IbmMqFactoryProvider.class)
 public class JmsCommandQueue implements com.acme.reliable.spi.CommandQueue {
     private static final Logger LOG = LoggerFactory.getLogger(JmsCommandQueue.class);
+    private static final int MAX_HEADER_PLANS = 256;
 
-    private final jakarta.jms.Connection connection;
-    private final ThreadLocal<SessionHolder> sessionPool;
+    private final JmsSessionPool sessionPool;
+    private final int batchCommitSize;
+    private final java.util.Map<java.util.Set<String>, HeaderPlan> headerPlans = new java.util.concurrent.ConcurrentHashMap<>();
 
-    public JmsCommandQueue(@Named("mqConnectionFactory") jakarta.jms.ConnectionFactory cf) {
-        try {
-            this.connection = cf.createConnection();
-            this.connection.start();
-            LOG.info("JMS connection initialized and started");
-        } catch (jakarta.jms.JMSException e) {
-            throw new RuntimeException("Failed to initialize JMS connection", e);
-        }
-
-        // Initialize ThreadLocal after connection is established
-        this.sessionPool = ThreadLocal.withInitial(() -> {
-            try {
-                LOG.debug("Creating new JMS session for thread {}", Thread.currentThread().getName());
-                return new SessionHolder(connection.createSession(true, jakarta.jms.Session.SESSION_TRANSACTED));
-            } catch (jakarta.jms.JMSException e) {
-                throw new RuntimeException("Failed to create JMS session", e);
-            }
-        });
+    public JmsCommandQueue(JmsSessionPool sessionPool,
+                           @Value("${mq.batch-commit-size:100}") int batchCommitSize) {
+        this.sessionPool = sessionPool;
+        this.batchCommitSize = Math.max(1, batchCommitSize);
     }
 
     @Override
     public void send(String queue, String body, java.util.Map<String,String> headers) {
-        SessionHolder holder = sessionPool.get();
+        var pooled = sessionPool.borrow();
+        boolean broken = false;
 
         try {
-            var session = holder.session;
-            var dest = session.createQueue(queue);
-            var msg = session.createTextMessage(body);
+            put(pooled, queue, body, headers);
+            pooled.session.commit();
 
-            if (headers != null) {
-                if (headers.containsKey("correlationId")) {
-                    msg.setJMSCorrelationID(headers.get("correlationId"));
-                }
-                if (headers.containsKey("replyTo")) {
-                    msg.setJMSReplyTo(session.createQueue(headers.get("replyTo")));
+        } catch(Exception e) {
+            broken = true;
+            rollback(pooled);
+            throw new RuntimeException("Failed to send message to queue: " + queue, e);
+        } finally {
+            sessionPool.release(pooled, broken);
+        }
+    }
+
+    /**
+     * Puts the messages under one transacted session and commits once per {@code batchCommitSize} puts,
+     * so persistent messages cost one forced log write on the queue manager per chunk instead of per message.
+     * A failed put is reported for that message only; a failed commit fails every message of its chunk.
+     */
+    @Override
+    public java.util.Map<Integer, Exception> sendAll(java.util.List<OutgoingMessage> messages) {
+        var failures = new java.util.LinkedHashMap<Integer, Exception>();
+        if (messages.isEmpty()) {
+            return failures;
+        }
+        var pooled = sessionPool.borrow();
+        boolean broken = false;
+        try {
+            for (int start = 0; start < messages.size(); start += batchCommitSize) {
+                int end = Math.min(messages.size(), start + batchCommitSize);
+                if (broken) {
+                    // The session was discarded by a failed commit; continue the batch on a fresh one
+                    sessionPool.release(pooled, true);
+                    pooled = null;
+                    broken = false;
+                    try {
+                        pooled = sessionPool.borrow();
+                    } catch (RuntimeException e) {
+                        for (int i = start; i < messages.size(); i++) {
+                            failures.put(i, e);
+                        }
+                        break;
+                    }
                 }
-                for (var e : headers.entrySet()) {
-                    String key = e.getKey();
-                    // Skip special JMS headers and IBM MQ internal properties
-                    if (key.equals("correlationId") || key.equals("replyTo") || key.equals("mode") ||
-                        key.startsWith("JMS_IBM_") || key.startsWith("JMSX")) {
-                        continue;
+                var uncommitted = new java.util.ArrayList<Integer>(end - start);
+                for (int i = start; i < end; i++) {
+                    var m = messages.get(i);
+                    try {
+                        put(pooled, m.queue(), m.body(), m.headers());
+                        uncommitted.add(i);
+                    } catch (Exception e) {
+                        failures.put(i, new RuntimeException("Failed to send message to queue: " + m.queue(), e));
                     }
-                    msg.setStringProperty(key, e.getValue());
+                }
+                if (uncommitted.isEmpty()) {
+                    continue;
+                }
+                try {
+                    pooled.session.commit();
+                } catch (Exception e) {
+                    broken = true;
+                    rollback(pooled);
+                    var failure = new RuntimeException("Failed to commit batch of " + uncommitted.size() + " messages", e);
+                    uncommitted.forEach(i -> failures.put(i, failure));
                 }
             }
-
-            // Reuse the pooled producer
-            holder.producer.send(dest, msg);
-            session.commit();
-
-        } catch(Exception e) {
-            try {
-                holder.session.rollback();
-            } catch (jakarta.jms.JMSException rollbackEx) {
-                LOG.warn("Failed to rollback JMS session", rollbackEx);
+        } finally {
+            if (pooled != null) {
+                sessionPool.release(pooled, broken);
             }
+        }
+        return failures;
+    }
 
-            // On error, invalidate the session and create a new one
-            holder.close();
-            sessionPool.remove();
+    private void put(JmsSessionPool.PooledSession pooled, String queue, String body, java.util.Map<String,String> headers)
+            throws jakarta.jms.JMSException {
+        var msg = pooled.session.createTextMessage(body);
 
-            throw new RuntimeException("Failed to send message to queue: " + queue, e);
+        if (headers != null && !headers.isEmpty()) {
+            var plan = planFor(headers);
+            if (plan.correlationId()) {
+                msg.setJMSCorrelationID(headers.get("correlationId"));
+            }
+            if (plan.replyTo()) {
+                msg.setJMSReplyTo(pooled.queue(headers.get("replyTo")));
+            }
+            for (String key : plan.properties()) {
+                msg.setStringProperty(key, headers.get(key));
+            }
         }
+
+        // Reuse the pooled producer and the session's cached destination
+        pooled.producer.send(pooled.queue(queue), msg);
     }
 
-    @PreDestroy
-    void shutdown() {
-        LOG.info("Shutting down JMS connection pool");
-        try {
-            // Clean up thread-local sessions
-            sessionPool.remove();
-            connection.close();
-        } catch (Exception e) {
-            LOG.warn("Error during JMS shutdown", e);
+    HeaderPlan planFor(java.util.Map<String,String> headers) {
+        // Set equality is by content, so the live key set works for lookups; only a miss copies it
+        var plan = headerPlans.get(headers.keySet());
+        if (plan == null) {
+            plan = HeaderPlan.of(headers.keySet());
+            if (headerPlans.size() < MAX_HEADER_PLANS) {
+                headerPlans.putIfAbsent(java.util.Set.copyOf(headers.keySet()), plan);
+            }
         }
+        return plan;
     }
 
     /**
-     * Holds a JMS session and producer per thread for reuse.
-     * This dramatically improves performance by avoiding session/producer creation overhead.
+     * How a given set of header names maps onto the JMS message: which special headers are present
+     * and which names become string properties.
      */
-    private static class SessionHolder {
-        final jakarta.jms.Session session;
-        final jakarta.jms.MessageProducer producer;
-
-        SessionHolder(jakarta.jms.Session session) throws jakarta.jms.JMSException {
-            this.session = session;
-            // Create a generic producer (destination set per send call)
-            this.producer = session.createProducer(null);
-        }
-
-        void close() {
-            try {
-                if (producer != null) {
-                    producer.close();
-                }
-            } catch (jakarta.jms.JMSException e) {
-                LOG.debug("Error closing producer", e);
-            }
-            try {
-                if (session != null) {
-                    session.close();
+    record HeaderPlan(boolean correlationId, boolean replyTo, String[] properties) {
+        static HeaderPlan of(java.util.Set<String> keys) {
+            var properties = new java.util.ArrayList<String>(keys.size());
+            for (String key : keys) {
+                // Skip special JMS headers and IBM MQ internal properties
+                if (key.equals("correlationId") || key.equals("replyTo") || key.equals("mode") ||
+                    key.startsWith("JMS_IBM_") || key.startsWith("JMSX")) {
+                    continue;
                 }
-            } catch (jakarta.jms.JMSException e) {
-                LOG.debug("Error closing session", e);
+                properties.add(key);
             }
+            return new HeaderPlan(keys.contains("correlationId"), keys.contains("replyTo"),
+                properties.toArray(String[]::new));
+        }
+    }
+
+    private void rollback(JmsSessionPool.PooledSession pooled) {
+        try {
+            pooled.session.rollback();
+        } catch (jakarta.jms.JMSException rollbackEx) {
+            LOG.warn("Failed to rollback JMS session", rollbackEx);
         }
     }
 }
@@ -0,0 +1,308 @@
+package com.acme.reliable.mq;
+
+import com.acme.reliable.config.MqSessionPoolConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micronaut.context.annotation.Requires;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of transacted JMS sessions and their producers, spread across a fixed number of connections.
+ * The session count is capped by configuration instead of growing with the number of calling threads,
+ * idle sessions are closed after a while, and borrow waits are measured. Pool size and borrow waits are
+ * exported as the {@code mq.session.*} meters.
+ */
+@Singleton
+@Requires(beans = IbmMqFactoryProvider.class)
+public class JmsSessionPool {
+    private static final Logger LOG = LoggerFactory.getLogger(JmsSessionPool.class);
+
+    private final List<jakarta.jms.Connection> connections = new ArrayList<>();
+    private final ConcurrentLinkedDeque<PooledSession> idle = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    private final long borrowTimeoutNanos;
+    private final long idleTimeoutNanos;
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong totalBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final int maxSessions;
+    private final ScheduledExecutorService evictor;
+
+    public JmsSessionPool(@Named("mqConnectionFactory") jakarta.jms.ConnectionFactory cf, MqSessionPoolConfig config,
+                          MeterRegistry registry) {
+        this.maxSessions = Math.max(1, config.getMaxSessions());
+        this.permits = new Semaphore(maxSessions, true);
+        this.borrowTimeoutNanos = config.getBorrowTimeout().toNanos();
+        this.idleTimeoutNanos = config.getIdleTimeout().toNanos();
+        try {
+            for (int i = 0; i < Math.max(1, config.getConnections()); i++) {
+                var connection = cf.createConnection();
+                connection.start();
+                connections.add(connection);
+            }
+            LOG.info("JMS session pool initialized with {} connections and up to {} sessions", connections.size(), maxSessions);
+        } catch (jakarta.jms.JMSException e) {
+            connections.forEach(JmsSessionPool::closeQuietly);
+            throw new RuntimeException("Failed to initialize JMS connections", e);
+        }
+
+        long evictionMillis = Math.max(1, config.getEvictionInterval().toMillis());
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jms-session-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, evictionMillis, evictionMillis, TimeUnit.MILLISECONDS);
+        registerMeters(registry);
+    }
+
+    private void registerMeters(MeterRegistry registry) {
+        Gauge.builder("mq.session.pool.sessions", this, JmsSessionPool::getActiveSessions)
+            .description("JMS sessions of the pool by state")
+            .tag("state", "active")
+            .register(registry);
+        Gauge.builder("mq.session.pool.sessions", this, JmsSessionPool::getIdleSessions)
+            .description("JMS sessions of the pool by state")
+            .tag("state", "idle")
+            .register(registry);
+        Gauge.builder("mq.session.pool.open", this, JmsSessionPool::getOpenSessions)
+            .description("Open JMS sessions, borrowed or idle")
+            .register(registry);
+        Gauge.builder("mq.session.pool.max", this, JmsSessionPool::getMaxSessions)
+            .description("Most JMS sessions the pool opens")
+            .register(registry);
+        FunctionTimer.builder("mq.session.borrow.wait", this, JmsSessionPool::getBorrowCount,
+                JmsSessionPool::getTotalBorrowWaitNanos, TimeUnit.NANOSECONDS)
+            .description("Time spent waiting to borrow a JMS session")
+            .register(registry);
+        TimeGauge.builder("mq.session.borrow.wait.max", this, TimeUnit.NANOSECONDS, JmsSessionPool::getMaxBorrowWaitNanos)
+            .description("Longest wait to borrow a JMS session since start")
+            .register(registry);
+        FunctionCounter.builder("mq.session.borrow.timeouts", this, JmsSessionPool::getBorrowTimeouts)
+            .description("Borrows that gave up waiting for a JMS session")
+            .register(registry);
+    }
+
+    /**
+     * Borrows a session, waiting up to the configured borrow timeout when all sessions are in use.
+     * Every borrowed session must be handed back through {@link #release}.
+     */
+    public PooledSession borrow() {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new IllegalStateException("Timed out waiting for a JMS session (max " + maxSessions + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a JMS session", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledSession s;
+            while ((s = idle.pollFirst()) != null) {
+                if (s.isValid()) {
+                    return s;
+                }
+                destroy(s);
+            }
+            return create();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a session to the pool. Broken sessions (after a failed send or commit) are closed instead.
+     */
+    public void release(PooledSession s, boolean broken) {
+        try {
+            if (broken) {
+                destroy(s);
+            } else {
+                s.lastUsedNanos = System.nanoTime();
+                idle.offerFirst(s);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledSession create() {
+        var connection = connections.get(Math.floorMod(nextConnection.getAndIncrement(), connections.size()));
+        jakarta.jms.Session session = null;
+        try {
+            session = connection.createSession(true, jakarta.jms.Session.SESSION_TRANSACTED);
+            var pooled = new PooledSession(session);
+            LOG.debug("Created JMS session ({} open)", openSessions.incrementAndGet());
+            return pooled;
+        } catch (jakarta.jms.JMSException e) {
+            if (session != null) {
+                try {
+                    session.close();
+                } catch (jakarta.jms.JMSException closeEx) {
+                    LOG.debug("Error closing session", closeEx);
+                }
+            }
+            throw new RuntimeException("Failed to create JMS session", e);
+        }
+    }
+
+    private void destroy(PooledSession s) {
+        s.close();
+        openSessions.decrementAndGet();
+    }
+
+    void evictIdle() {
+        long cutoff = System.nanoTime() - idleTimeoutNanos;
+        Iterator<PooledSession> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledSession s = it.next();
+            // Least recently used sessions sit at the tail; removal may race with a borrow, so only the winner closes it
+            if (s.lastUsedNanos < cutoff && idle.removeLastOccurrence(s)) {
+                destroy(s);
+            }
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalBorrowWaitNanos.addAndGet(waitNanos);
+        maxBorrowWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public int getOpenSessions() {
+        return openSessions.get();
+    }
+
+    public int getIdleSessions() {
+        return idle.size();
+    }
+
+    public int getActiveSessions() {
+        return maxSessions - permits.availablePermits();
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getBorrowTimeouts() {
+        return borrowTimeouts.get();
+    }
+
+    public long getTotalBorrowWaitNanos() {
+        return totalBorrowWaitNanos.get();
+    }
+
+    public long getMaxBorrowWaitNanos() {
+        return maxBorrowWaitNanos.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        LOG.info("Shutting down JMS session pool");
+        evictor.shutdownNow();
+        PooledSession s;
+        while ((s = idle.pollFirst()) != null) {
+            destroy(s);
+        }
+        connections.forEach(JmsSessionPool::closeQuietly);
+    }
+
+    private static void closeQuietly(jakarta.jms.Connection connection) {
+        try {
+            connection.close();
+        } catch (Exception e) {
+            LOG.warn("Error closing JMS connection", e);
+        }
+    }
+
+    /**
+     * A pooled JMS session and its producer, reused across sends.
+     */
+    public static final class PooledSession {
+        static final int MAX_CACHED_DESTINATIONS = 64;
+
+        final jakarta.jms.Session session;
+        final jakarta.jms.MessageProducer producer;
+        volatile long lastUsedNanos = System.nanoTime();
+
+        // Only touched by the thread that borrowed the session, so no locking is needed
+        private final java.util.Map<String, jakarta.jms.Queue> destinations =
+            new java.util.LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(java.util.Map.Entry<String, jakarta.jms.Queue> eldest) {
+                    return size() > MAX_CACHED_DESTINATIONS;
+                }
+            };
+
+        PooledSession(jakarta.jms.Session session) throws jakarta.jms.JMSException {
+            this.session = session;
+            // Create a generic producer (destination set per send call)
+            this.producer = session.createProducer(null);
+        }
+
+        /**
+         * Returns the queue for {@code name}, resolving it through the session only on first use.
+         */
+        jakarta.jms.Queue queue(String name) throws jakarta.jms.JMSException {
+            var queue = destinations.get(name);
+            if (queue == null) {
+                queue = session.createQueue(name);
+                destinations.put(name, queue);
+            }
+            return queue;
+        }
+
+        boolean isValid() {
+            try {
+                // Throws IllegalStateException once the session (or its connection) has been closed
+                return session.getTransacted();
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        void close() {
+            try {
+                producer.close();
+            } catch (jakarta.jms.JMSException e) {
+                LOG.debug("Error closing producer", e);
+            }
+            try {
+                session.close();
+            } catch (jakarta.jms.JMSException e) {
+                LOG.debug("Error closing session", e);
+            }
+        }
+    }
+}
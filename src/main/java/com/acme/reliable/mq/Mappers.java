@@ -1,6 +1,7 @@
 package com.acme.reliable.mq;
 
 import com.acme.reliable.core.Envelope;
+import com.acme.reliable.core.Tracing;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -22,7 +23,7 @@ public final class Mappers {
         try {
             JsonNode node = mapper.readTree(text);
 
-            // Extract headers from JMS message
+            // Extract headers from JMS message, trace context (traceparent, tracestate) included
             Map<String, String> headers = new HashMap<>();
             var enumeration = m.getPropertyNames();
             while (enumeration.hasMoreElements()) {
@@ -83,6 +84,20 @@ public final class Mappers {
         }
     }
 
+    /**
+     * The W3C trace headers of a message, for consumers that do not map it to an Envelope.
+     */
+    public static Map<String, String> traceHeaders(Message m) throws JMSException {
+        Map<String, String> headers = new HashMap<>(2);
+        for (String name : new String[] {Tracing.TRACEPARENT, Tracing.TRACESTATE}) {
+            String value = m.getStringProperty(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        return headers;
+    }
+
     private static Optional<UUID> extractUuid(String value) {
         if (value == null || value.isBlank()) {
             return Optional.empty();
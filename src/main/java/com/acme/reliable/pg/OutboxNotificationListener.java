@@ -0,0 +1,116 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.relay.SweepTrigger;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Listens on the outbox notification channel over a dedicated connection (outside the Hikari pool)
+ * and wakes the relay as soon as rows become eligible. Notifications carry the delay in milliseconds
+ * until the row is due: 0 for fresh inserts, the backoff for rescheduled rows.
+ */
+@Singleton
+@Requires(property = "relay.notify-enabled", value = "true", defaultValue = "true")
+@Requires(property = "relay.engine", notEquals = "REPLICATION")
+public class OutboxNotificationListener implements ApplicationEventListener<StartupEvent> {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxNotificationListener.class);
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private final SweepTrigger trigger;
+    private final String url;
+    private final String username;
+    private final String password;
+    private volatile boolean running;
+    private Thread worker;
+
+    public OutboxNotificationListener(
+            SweepTrigger trigger,
+            @Value("${datasources.default.url}") String url,
+            @Value("${datasources.default.username}") String username,
+            @Value("${datasources.default.password}") String password) {
+        this.trigger = trigger;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(StartupEvent event) {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::listenLoop, "outbox-listener");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void listenLoop() {
+        long reconnectDelay = 1000;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(url, username, password)) {
+                try (var stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + PgOutboxStore.NOTIFY_CHANNEL);
+                }
+                LOG.info("Listening for outbox notifications on channel {}", PgOutboxStore.NOTIFY_CHANNEL);
+                reconnectDelay = 1000;
+                // Anything committed while we were not listening is picked up by one catch-up sweep
+                trigger.wakeAfter(0);
+
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification n : notifications) {
+                            trigger.wakeAfter(parseDelay(n.getParameter()));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                LOG.warn("Outbox notification listener lost its connection, retrying in {} ms: {}", reconnectDelay, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                reconnectDelay = Math.min(MAX_RECONNECT_DELAY_MS, reconnectDelay * 2);
+            }
+        }
+    }
+
+    static long parseDelay(String payload) {
+        if (payload == null || payload.isBlank()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(payload.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+}
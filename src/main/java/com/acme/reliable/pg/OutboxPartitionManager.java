@@ -0,0 +1,191 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.config.OutboxConfig;
+import com.acme.reliable.config.RelayConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.data.connection.ConnectionOperations;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the daily partitions of the outbox table in shape: creates partitions ahead of time (the outbox
+ * has no default partition, so an insert for a day without one fails), and detaches and drops partitions
+ * past retention once every row in them has been published. Dropping a partition replaces deleting its
+ * rows one by one. The replication engine never marks rows published, so under it retention alone decides.
+ * <p>
+ * {@code outbox_history}, written in DELETE mode, is partitioned by day on {@code published_at} the same way;
+ * its partitions are dropped once past {@code outbox.history-retention}, with no further check.
+ * <p>
+ * Partitions are detached {@code CONCURRENTLY}, which only takes a SHARE UPDATE EXCLUSIVE lock on the outbox,
+ * so inserts, claims and finalizes carry on meanwhile. Such a detach runs in two transactions of its own; one
+ * interrupted in between leaves the partition pending and is finished on the next run.
+ */
+@Singleton
+@Requires(property = "outbox.partition-maintenance-enabled", value = "true", defaultValue = "true")
+public class OutboxPartitionManager implements ApplicationEventListener<StartupEvent> {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxPartitionManager.class);
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    // Matches V6__outbox_dispatch_v2.sql; leaves room on each page for the claim and finalize updates
+    static final int FILLFACTOR = 80;
+
+    private final ConnectionOperations<Connection> connectionOps;
+    private final int partitionsAhead;
+    private final List<Table> tables;
+    private final AtomicLong partitionsCreated = new AtomicLong();
+    private final AtomicLong partitionsDropped = new AtomicLong();
+
+    public OutboxPartitionManager(ConnectionOperations<Connection> connectionOps, OutboxConfig config,
+                                  RelayConfig relayConfig, MeterRegistry registry) {
+        this.connectionOps = connectionOps;
+        this.partitionsAhead = Math.max(1, config.getPartitionsAhead());
+        this.tables = List.of(
+            new Table("outbox", config.getRetentionDays(), " with (fillfactor = " + FILLFACTOR + ")", relayConfig.isPolling()),
+            new Table("outbox_history", config.getHistoryRetentionDays(), "", false));
+        FunctionCounter.builder("outbox.partitions.created", this, OutboxPartitionManager::getPartitionsCreated)
+            .description("Daily outbox and outbox_history partitions created ahead of time")
+            .register(registry);
+        FunctionCounter.builder("outbox.partitions.dropped", this, OutboxPartitionManager::getPartitionsDropped)
+            .description("Daily outbox and outbox_history partitions dropped past retention")
+            .register(registry);
+    }
+
+    /**
+     * A table partitioned by day, its partitions named {@code <table>_pYYYYMMDD}.
+     */
+    private record Table(String name, int retentionDays, String storage, boolean checkPublished) {}
+
+    @Override
+    public void onApplicationEvent(StartupEvent event) {
+        maintain();
+    }
+
+    @Scheduled(fixedDelay = "${outbox.partition-maintenance-interval:1h}", initialDelay = "${outbox.partition-maintenance-interval:1h}")
+    void maintain() {
+        try {
+            // Use the database's notion of today, the same one the partition bounds are interpreted in
+            LocalDate today = query("select current_date", rs -> rs.getObject(1, LocalDate.class)).get(0);
+            for (Table table : tables) {
+                maintain(table, today);
+            }
+        } catch (Exception e) {
+            LOG.warn("Outbox partition maintenance failed", e);
+        }
+    }
+
+    private void maintain(Table table, LocalDate today) {
+        for (int i = 0; i <= partitionsAhead; i++) {
+            createPartition(table, today.plusDays(i));
+        }
+        LocalDate cutoff = today.minusDays(table.retentionDays());
+        for (Partition partition : dailyPartitions(table)) {
+            if (isExpired(table.name(), partition.name(), cutoff)) {
+                dropIfPublished(table, partition);
+            }
+        }
+    }
+
+    private void createPartition(Table table, LocalDate day) {
+        String name = partitionName(table.name(), day);
+        if (!query("select 1 where to_regclass('" + name + "') is not null", rs -> 1).isEmpty()) {
+            return;
+        }
+        try {
+            update("create table if not exists " + name + " partition of " + table.name() + " for values from ('"
+                + day + "') to ('" + day.plusDays(1) + "')" + table.storage());
+            partitionsCreated.incrementAndGet();
+            LOG.info("Created partition {}", name);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not create partition {}", name, e);
+        }
+    }
+
+    private void dropIfPublished(Table table, Partition partition) {
+        String name = partition.name();
+        boolean pending = table.checkPublished()
+            && !query("select 1 from " + name + " where status <> 'PUBLISHED' limit 1", rs -> 1).isEmpty();
+        if (pending) {
+            LOG.warn("Outbox partition {} is past retention but still holds unpublished rows; keeping it", name);
+            return;
+        }
+        // Not allowed in a transaction block; maintenance runs on its own, on an autocommit connection
+        update("alter table " + table.name() + " detach partition " + name
+            + (partition.detachPending() ? " finalize" : " concurrently"));
+        update("drop table " + name);
+        partitionsDropped.incrementAndGet();
+        LOG.info("Dropped partition {}", name);
+    }
+
+    private record Partition(String name, boolean detachPending) {}
+
+    private List<Partition> dailyPartitions(Table table) {
+        return query(
+            "select c.relname, i.inhdetachpending from pg_inherits i " +
+            "join pg_class c on c.oid = i.inhrelid join pg_class p on p.oid = i.inhparent " +
+            "where p.relname = '" + table.name() + "' order by c.relname",
+            rs -> new Partition(rs.getString(1), rs.getBoolean(2)));
+    }
+
+    static String partitionName(String table, LocalDate day) {
+        return table + "_p" + day.format(SUFFIX);
+    }
+
+    /**
+     * A daily partition of {@code table} is expired once its whole day lies before {@code cutoff};
+     * other tables never are.
+     */
+    static boolean isExpired(String table, String partition, LocalDate cutoff) {
+        var m = Pattern.compile(Pattern.quote(table) + "_p(\\d{8})").matcher(partition);
+        return m.matches() && LocalDate.parse(m.group(1), SUFFIX).isBefore(cutoff);
+    }
+
+    public long getPartitionsCreated() {
+        return partitionsCreated.get();
+    }
+
+    public long getPartitionsDropped() {
+        return partitionsDropped.get();
+    }
+
+    private int update(String sql) {
+        return connectionOps.executeWrite(status -> {
+            try (var st = status.getConnection().createStatement()) {
+                return st.executeUpdate(sql);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private <T> List<T> query(String sql, RowMapper<T> mapper) {
+        return connectionOps.executeRead(status -> {
+            try (var st = status.getConnection().createStatement(); var rs = st.executeQuery(sql)) {
+                List<T> result = new ArrayList<>();
+                while (rs.next()) {
+                    result.add(mapper.map(rs));
+                }
+                return result;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    interface RowMapper<T> {
+        T map(java.sql.ResultSet rs) throws SQLException;
+    }
+}
@@ -0,0 +1,352 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.config.TimeoutConfig;
+import com.acme.reliable.core.PermanentException;
+import com.acme.reliable.relay.OutboxRelay;
+import com.acme.reliable.spi.OutboxStore;
+import com.acme.reliable.spi.OutboxStore.OutboxRow;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import jakarta.jms.InvalidDestinationException;
+import jakarta.jms.JMSSecurityException;
+import jakarta.jms.MessageFormatException;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay engine that streams committed outbox inserts from a logical replication slot (pgoutput) instead of
+ * claiming rows: each transaction's rows are published in commit order, then its end LSN is confirmed to the
+ * slot. Outbox rows are never updated, so a message costs its insert only; old rows leave with their partition.
+ * <p>
+ * Failed rows of a transaction are retried with backoff before the stream moves on, so one unreachable
+ * destination holds back everything committed after it. A row that still fails after
+ * {@code relay.replication-max-attempts} attempts, or fails with an error a retry cannot fix, is parked
+ * ({@link OutboxStore#parkAll}) so the stream, and the WAL the slot retains, can move past it. Only one connection can stream a slot at a time;
+ * other nodes keep retrying and take over when the active one goes away. After a reconnect the slot resumes
+ * from the last confirmed LSN, so rows published but not yet confirmed are sent again (at least once).
+ * <p>
+ * Requires {@code wal_level=logical} and the {@code REPLICATION} privilege. Enabled with {@code relay.engine=REPLICATION}.
+ * Progress is exported as the {@code outbox.replication.*} meters; the confirmed LSN gauge, compared with
+ * {@code pg_current_wal_lsn()}, gives the engine's lag in bytes of WAL.
+ */
+@Singleton
+@Requires(property = "relay.engine", value = "REPLICATION")
+public class OutboxReplicationTailer implements ApplicationEventListener<StartupEvent> {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxReplicationTailer.class);
+    private static final String OUTBOX_TABLE = "outbox";
+    private static final String DUPLICATE_OBJECT = "42710";
+    private static final long IDLE_POLL_MS = 10;
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private final OutboxRelay relay;
+    private final OutboxStore store;
+    private final String slot;
+    private final String publication;
+    private final long statusIntervalMillis;
+    private final long firstRetryMillis;
+    private final long maxRetryMillis;
+    private final int maxAttempts;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final AtomicLong transactions = new AtomicLong();
+    private final AtomicLong rowsPublished = new AtomicLong();
+    private final AtomicLong publishRetries = new AtomicLong();
+    private final AtomicLong rowsParked = new AtomicLong();
+    private volatile LogSequenceNumber confirmedLsn = LogSequenceNumber.INVALID_LSN;
+    private volatile boolean running;
+    private Thread worker;
+
+    public OutboxReplicationTailer(
+            OutboxRelay relay,
+            OutboxStore store,
+            RelayConfig relayConfig,
+            TimeoutConfig timeoutConfig,
+            MeterRegistry registry,
+            @Value("${datasources.default.url}") String url,
+            @Value("${datasources.default.username}") String username,
+            @Value("${datasources.default.password}") String password) {
+        this(relay, store, relayConfig, timeoutConfig, registry, 1000, url, username, password);
+    }
+
+    OutboxReplicationTailer(OutboxRelay relay, OutboxStore store, RelayConfig relayConfig, TimeoutConfig timeoutConfig,
+                            MeterRegistry registry, long firstRetryMillis, String url, String username, String password) {
+        this.relay = relay;
+        this.store = store;
+        this.slot = relayConfig.getReplicationSlot();
+        this.publication = relayConfig.getReplicationPublication();
+        this.statusIntervalMillis = Math.max(1, relayConfig.getReplicationStatusInterval().toMillis());
+        this.firstRetryMillis = Math.max(1, firstRetryMillis);
+        this.maxRetryMillis = Math.max(this.firstRetryMillis, timeoutConfig.getMaxBackoffMillis());
+        this.maxAttempts = Math.max(1, relayConfig.getReplicationMaxAttempts());
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        FunctionCounter.builder("outbox.replication.transactions", this, OutboxReplicationTailer::getTransactions)
+            .description("Outbox transactions streamed and published by the replication engine")
+            .register(registry);
+        FunctionCounter.builder("outbox.replication.rows", this, OutboxReplicationTailer::getRowsPublished)
+            .description("Outbox rows published by the replication engine")
+            .baseUnit("rows")
+            .register(registry);
+        FunctionCounter.builder("outbox.replication.retries", this, OutboxReplicationTailer::getPublishRetries)
+            .description("Retries of transactions with rows that failed to publish")
+            .register(registry);
+        FunctionCounter.builder("outbox.replication.parked", this, OutboxReplicationTailer::getRowsParked)
+            .description("Streamed rows given up on and parked with their error")
+            .baseUnit("rows")
+            .register(registry);
+        Gauge.builder("outbox.replication.confirmed.lsn", this, t -> t.confirmedLsn.asLong())
+            .description("Last WAL position confirmed to the replication slot")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(StartupEvent event) {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::streamLoop, "outbox-replication-tailer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void streamLoop() {
+        long reconnectDelay = 1000;
+        while (running) {
+            try (Connection conn = openReplicationConnection()) {
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                ensureSlot(pg);
+                try (PGReplicationStream stream = pg.getReplicationAPI()
+                        .replicationStream()
+                        .logical()
+                        .withSlotName(slot)
+                        .withSlotOption("proto_version", "1")
+                        .withSlotOption("publication_names", publication)
+                        .withStatusInterval((int) statusIntervalMillis, TimeUnit.MILLISECONDS)
+                        .start()) {
+                    LOG.info("Streaming outbox inserts from replication slot {} (publication {})", slot, publication);
+                    reconnectDelay = 1000;
+                    tail(stream);
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                LOG.warn("Outbox replication stream lost, retrying in {} ms: {}", reconnectDelay, e.getMessage());
+                if (!pause(reconnectDelay)) {
+                    return;
+                }
+                reconnectDelay = Math.min(MAX_RECONNECT_DELAY_MS, reconnectDelay * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void tail(PGReplicationStream stream) throws SQLException, InterruptedException {
+        // Relations are announced again on every new stream, so the decoder starts fresh with it
+        var decoder = new PgOutputDecoder(OUTBOX_TABLE);
+        while (running) {
+            ByteBuffer msg = stream.readPending();
+            if (msg == null) {
+                Thread.sleep(IDLE_POLL_MS);
+                continue;
+            }
+            var txn = decoder.decode(msg);
+            if (txn == null) {
+                continue;
+            }
+            if (!txn.rows().isEmpty()) {
+                publishAll(txn.rows(), () -> keepAlive(stream));
+            }
+            var lsn = LogSequenceNumber.valueOf(txn.endLsn());
+            stream.setAppliedLSN(lsn);
+            stream.setFlushedLSN(lsn);
+            confirmedLsn = lsn;
+            transactions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Publishes one transaction's rows in order, retrying the failed ones with exponential backoff. Rows that
+     * fail for good, or are still failing after {@code maxAttempts} attempts, are parked instead of retried.
+     * {@code keepAlive} runs between retries so the server does not drop the idle stream.
+     */
+    void publishAll(List<OutboxRow> rows, Runnable keepAlive) throws InterruptedException {
+        List<OutboxRow> pending = rows;
+        long backoff = firstRetryMillis;
+        for (int attempt = 1; ; attempt++) {
+            Map<UUID, Exception> failures = relay.publishInOrder(pending);
+            rowsPublished.addAndGet(pending.size() - failures.size());
+            if (failures.isEmpty()) {
+                return;
+            }
+            // Delivered rows are not sent again; the rest keep their order
+            pending = pending.stream().filter(r -> failures.containsKey(r.id())).toList();
+            Map<UUID, String> giveUp = new LinkedHashMap<>();
+            for (OutboxRow r : pending) {
+                Exception e = failures.get(r.id());
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    giveUp.put(r.id(), e.toString());
+                }
+            }
+            if (!giveUp.isEmpty() && park(giveUp, attempt)) {
+                pending = pending.stream().filter(r -> !giveUp.containsKey(r.id())).toList();
+                if (pending.isEmpty()) {
+                    return;
+                }
+            }
+            publishRetries.incrementAndGet();
+            LOG.warn("{} outbox rows failed to publish, retrying in {} ms: {}",
+                pending.size(), backoff, failures.get(pending.get(0).id()).toString());
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+            long remaining = backoff;
+            do {
+                Thread.sleep(Math.min(remaining, statusIntervalMillis));
+                keepAlive.run();
+                remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            } while (remaining > 0);
+            backoff = Math.min(maxRetryMillis, backoff * 2);
+        }
+    }
+
+    /**
+     * Records the rows' errors so the stream can move past them; returns false when that fails, in which case
+     * the rows are retried like any other.
+     */
+    private boolean park(Map<UUID, String> errors, int attempt) {
+        try {
+            store.parkAll(errors);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not park {} undeliverable outbox rows, retrying them", errors.size(), e);
+            return false;
+        }
+        rowsParked.addAndGet(errors.size());
+        errors.forEach((id, error) -> LOG.error("Parked outbox row {} after {} attempts: {}", id, attempt, error));
+        return true;
+    }
+
+    /**
+     * Whether a publish failure can succeed on retry. Unknown categories and destinations, authorization and
+     * serialization failures, and Kafka errors that Kafka itself does not retry fail the same way every time.
+     */
+    static boolean isRetryable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof PermanentException || t instanceof IllegalArgumentException
+                || t instanceof InvalidDestinationException || t instanceof JMSSecurityException
+                || t instanceof MessageFormatException) {
+                return false;
+            }
+            if (t instanceof KafkaException) {
+                return t instanceof RetriableException;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private static void keepAlive(PGReplicationStream stream) {
+        try {
+            stream.forceUpdateStatus();
+        } catch (SQLException e) {
+            // The stream is broken; the next read fails and reconnects
+            LOG.debug("Could not send replication status update", e);
+        }
+    }
+
+    private void ensureSlot(PGConnection pg) throws SQLException {
+        try {
+            pg.getReplicationAPI()
+                .createReplicationSlot()
+                .logical()
+                .withSlotName(slot)
+                .withOutputPlugin("pgoutput")
+                .make();
+            LOG.info("Created logical replication slot {}; outbox rows committed before it are not streamed", slot);
+        } catch (SQLException e) {
+            if (!DUPLICATE_OBJECT.equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+    }
+
+    private Connection openReplicationConnection() throws SQLException {
+        Properties props = new Properties();
+        PGProperty.USER.set(props, username);
+        PGProperty.PASSWORD.set(props, password);
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(props, "13");
+        PGProperty.REPLICATION.set(props, "database");
+        PGProperty.PREFER_QUERY_MODE.set(props, "simple");
+        return DriverManager.getConnection(url, props);
+    }
+
+    private boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public long getTransactions() {
+        return transactions.get();
+    }
+
+    public long getRowsPublished() {
+        return rowsPublished.get();
+    }
+
+    public long getPublishRetries() {
+        return publishRetries.get();
+    }
+
+    public long getRowsParked() {
+        return rowsParked.get();
+    }
+
+    public String getConfirmedLsn() {
+        return confirmedLsn.asString();
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+}
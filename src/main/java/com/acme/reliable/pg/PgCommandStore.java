@@ -1,25 +1,28 @@
 package com.acme.reliable.pg;
 
 import com.acme.reliable.spi.CommandStore;
+import com.acme.reliable.spi.IdGenerator;
+import com.acme.reliable.core.Tracing;
 import io.micronaut.data.connection.ConnectionOperations;
 import jakarta.inject.Singleton;
 import java.sql.*;
-import java.time.Instant;
 import java.util.*;
 
 @Singleton
 public class PgCommandStore implements CommandStore {
-    private final ConnectionOperations<Connection> connectionOps;
+    private final TracedConnections db;
+    private final IdGenerator idGenerator;
 
-    public PgCommandStore(ConnectionOperations<Connection> connectionOps) {
-        this.connectionOps = connectionOps;
+    public PgCommandStore(ConnectionOperations<Connection> connectionOps, IdGenerator idGenerator, Tracing tracing) {
+        this.db = new TracedConnections(connectionOps, tracing);
+        this.idGenerator = idGenerator;
     }
 
     @Override
     public UUID savePending(String name, String idem, String key, String payload, String reply) {
-        return connectionOps.executeWrite(status -> {
+        return db.write("CommandStore.savePending", status -> {
             try {
-                UUID id = UUID.randomUUID();
+                UUID id = idGenerator.newId();
                 try (var ps = status.getConnection().prepareStatement(
                     "insert into command(id, name, business_key, payload, idempotency_key, status, reply) values (?,?,?,?::jsonb,?,'PENDING',?::jsonb)")) {
                     ps.setObject(1, id);
@@ -37,9 +40,51 @@ public class PgCommandStore implements CommandStore {
         });
     }
 
+    @Override
+    public Accepted savePendingIfAbsent(String name, String idem, String key, String payload, String reply) {
+        return db.write("CommandStore.savePendingIfAbsent", status -> {
+            try {
+                var c = status.getConnection();
+                try (var ps = c.prepareStatement(
+                    "with ins as (" +
+                    "  insert into command(id, name, business_key, payload, idempotency_key, status, reply) " +
+                    "  values (?,?,?,?::jsonb,?,'PENDING',?::jsonb) " +
+                    "  on conflict (idempotency_key) do nothing returning id, status) " +
+                    "select id, status::text, true from ins " +
+                    "union all " +
+                    "select id, status::text, false from command where idempotency_key=? and not exists (select 1 from ins)")) {
+                    ps.setObject(1, idGenerator.newId());
+                    ps.setString(2, name);
+                    ps.setString(3, key);
+                    ps.setString(4, payload);
+                    ps.setString(5, idem);
+                    ps.setString(6, reply);
+                    ps.setString(7, idem);
+                    try (var rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            return new Accepted((UUID) rs.getObject(1), rs.getString(2), rs.getBoolean(3));
+                        }
+                    }
+                }
+                // The conflicting row was committed after this statement's snapshot was taken; a new statement sees it
+                try (var ps = c.prepareStatement("select id, status::text from command where idempotency_key=?")) {
+                    ps.setString(1, idem);
+                    try (var rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            return new Accepted((UUID) rs.getObject(1), rs.getString(2), false);
+                        }
+                    }
+                }
+                throw new IllegalStateException("Command with idempotency key " + idem + " neither inserted nor found");
+            } catch(SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
     @Override
     public Optional<Record> find(UUID id) {
-        return connectionOps.executeRead(status -> {
+        return db.read("CommandStore.find", status -> {
             try(var ps = status.getConnection().prepareStatement("select id,name,business_key,payload,status,reply from command where id=?")) {
                 ps.setObject(1, id);
                 var rs = ps.executeQuery();
@@ -60,24 +105,9 @@ public class PgCommandStore implements CommandStore {
         });
     }
 
-    @Override
-    public void markRunning(UUID id, Instant lease) {
-        exec("update command set status='RUNNING', processing_lease_until=? where id=?", ps -> {
-            ps.setTimestamp(1, java.sql.Timestamp.from(lease));
-            ps.setObject(2, id);
-        });
-    }
-
-    @Override
-    public void markSucceeded(UUID id) {
-        exec("update command set status='SUCCEEDED', updated_at=now() where id=?", ps -> {
-            ps.setObject(1, id);
-        });
-    }
-
     @Override
     public void markFailed(UUID id, String err) {
-        exec("update command set status='FAILED', last_error=?, updated_at=now() where id=?", ps -> {
+        exec("CommandStore.markFailed", "update command set status='FAILED', last_error=?, updated_at=now() where id=?", ps -> {
             ps.setString(1, err);
             ps.setObject(2, id);
         });
@@ -85,7 +115,7 @@ public class PgCommandStore implements CommandStore {
 
     @Override
     public void bumpRetry(UUID id, String err) {
-        exec("update command set retries=retries+1, last_error=?, updated_at=now() where id=?", ps -> {
+        exec("CommandStore.bumpRetry", "update command set retries=retries+1, last_error=?, updated_at=now() where id=?", ps -> {
             ps.setString(1, err);
             ps.setObject(2, id);
         });
@@ -93,21 +123,14 @@ public class PgCommandStore implements CommandStore {
 
     @Override
     public void markTimedOut(UUID id, String reason) {
-        exec("update command set status='TIMED_OUT', last_error=?, updated_at=now() where id=?", ps -> {
+        exec("CommandStore.markTimedOut", "update command set status='TIMED_OUT', last_error=?, updated_at=now() where id=?", ps -> {
             ps.setString(1, reason);
             ps.setObject(2, id);
         });
     }
 
-    @Override
-    public boolean existsByIdempotencyKey(String k) {
-        return queryOne("select 1 from command where idempotency_key=?", ps -> {
-            ps.setString(1, k);
-        }).isPresent();
-    }
-
-    private void exec(String sql, SqlApplier a) {
-        connectionOps.executeWrite(status -> {
+    private void exec(String operation, String sql, SqlApplier a) {
+        db.write(operation, status -> {
             try (var ps = status.getConnection().prepareStatement(sql)) {
                 a.apply(ps);
                 ps.executeUpdate();
@@ -118,18 +141,6 @@ public class PgCommandStore implements CommandStore {
         });
     }
 
-    private Optional<Integer> queryOne(String sql, SqlApplier a) {
-        return connectionOps.executeRead(status -> {
-            try (var ps = status.getConnection().prepareStatement(sql)) {
-                a.apply(ps);
-                var rs = ps.executeQuery();
-                return rs.next() ? Optional.of(1) : Optional.empty();
-            } catch(SQLException e) {
-                throw new RuntimeException(e);
-            }
-        });
-    }
-
     interface SqlApplier {
         void apply(PreparedStatement ps) throws SQLException;
     }
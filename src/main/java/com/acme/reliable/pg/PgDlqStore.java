@@ -1,36 +1,46 @@
 package com.acme.reliable.pg;
 
+import com.acme.reliable.core.Tracing;
 import com.acme.reliable.spi.DlqStore;
+import com.acme.reliable.spi.IdGenerator;
 import jakarta.inject.Singleton;
 import javax.sql.DataSource;
 
 @Singleton
 public class PgDlqStore implements DlqStore {
     private final DataSource ds;
+    private final IdGenerator idGenerator;
+    private final Tracing tracing;
 
-    public PgDlqStore(DataSource ds) {
+    public PgDlqStore(DataSource ds, IdGenerator idGenerator, Tracing tracing) {
         this.ds = ds;
+        this.idGenerator = idGenerator;
+        this.tracing = tracing;
     }
 
     @Override
     public void park(java.util.UUID commandId, String commandName, String businessKey, String payload,
                      String failedStatus, String errorClass, String errorMessage, int attempts, String parkedBy) {
-        try (var c = ds.getConnection();
-             var ps = c.prepareStatement(
-                "insert into command_dlq(command_id, command_name, business_key, payload, failed_status, error_class, error_message, attempts, parked_by) " +
-                "values (?,?,?,?::jsonb,?,?,?,?,?)")) {
-            ps.setObject(1, commandId);
-            ps.setString(2, commandName);
-            ps.setString(3, businessKey);
-            ps.setString(4, payload);
-            ps.setString(5, failedStatus);
-            ps.setString(6, errorClass);
-            ps.setString(7, errorMessage);
-            ps.setInt(8, attempts);
-            ps.setString(9, parkedBy);
-            ps.executeUpdate();
-        } catch(Exception e) {
-            throw new RuntimeException(e);
-        }
+        tracing.inDbSpan("DlqStore.park", () -> {
+            try (var c = ds.getConnection();
+                 var ps = c.prepareStatement(
+                    "insert into command_dlq(id, command_id, command_name, business_key, payload, failed_status, error_class, error_message, attempts, parked_by) " +
+                    "values (?,?,?,?,?::jsonb,?,?,?,?,?)")) {
+                ps.setObject(1, idGenerator.newId());
+                ps.setObject(2, commandId);
+                ps.setString(3, commandName);
+                ps.setString(4, businessKey);
+                ps.setString(5, payload);
+                ps.setString(6, failedStatus);
+                ps.setString(7, errorClass);
+                ps.setString(8, errorMessage);
+                ps.setInt(9, attempts);
+                ps.setString(10, parkedBy);
+                ps.executeUpdate();
+            } catch(Exception e) {
+                throw new RuntimeException(e);
+            }
+            return null;
+        });
     }
 }
@@ -0,0 +1,88 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.core.Jsons;
+import com.acme.reliable.spi.ExecutionStore;
+import com.acme.reliable.spi.IdGenerator;
+import com.acme.reliable.spi.OutboxStore.OutboxRow;
+import com.acme.reliable.core.Tracing;
+import io.micronaut.data.connection.ConnectionOperations;
+import jakarta.inject.Singleton;
+import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Singleton
+public class PgExecutionStore implements ExecutionStore {
+    private final TracedConnections db;
+    private final IdGenerator idGenerator;
+
+    public PgExecutionStore(ConnectionOperations<Connection> connectionOps, IdGenerator idGenerator, Tracing tracing) {
+        this.db = new TracedConnections(connectionOps, tracing);
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public boolean begin(String messageId, String handler, UUID commandId, Instant leaseUntil) {
+        return db.write("ExecutionStore.begin", status -> {
+            try (var ps = status.getConnection().prepareStatement(
+                "with ins as (insert into inbox(message_id, handler) values (?,?) on conflict do nothing returning 1), " +
+                "upd as (update command set status='RUNNING', processing_lease_until=? " +
+                "        where id=? and exists (select 1 from ins)) " +
+                "select exists (select 1 from ins)")) {
+                ps.setString(1, messageId);
+                ps.setString(2, handler);
+                ps.setTimestamp(3, Timestamp.from(leaseUntil));
+                ps.setObject(4, commandId);
+                try (var rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getBoolean(1);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Override
+    public List<UUID> complete(UUID commandId, List<OutboxRow> rows) {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("A completed command must produce at least one outbox row");
+        }
+        var sql = new StringBuilder(
+            "with upd as (update command set status='SUCCEEDED', updated_at=now() where id=?), " +
+            "ins as (insert into outbox(id, category, topic, key, type, payload, headers, created_at, priority) values ");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "" : ",").append("(?,?::outbox_category,?,?,?,?::jsonb,?::jsonb," + PgOutboxStore.CREATED_AT_VALUE + ",?)");
+        }
+        // No notification: the caller hands these rows to the fast path, as with PgOutboxStore.addReturningId
+        sql.append(" returning id) select count(*) from ins");
+
+        return db.write("ExecutionStore.complete", status -> {
+            try (var ps = status.getConnection().prepareStatement(sql.toString())) {
+                var ids = new ArrayList<UUID>(rows.size());
+                int p = 1;
+                ps.setObject(p++, commandId);
+                for (var r : rows) {
+                    var id = r.id() != null ? r.id() : idGenerator.newId();
+                    ids.add(id);
+                    ps.setObject(p++, id);
+                    ps.setString(p++, r.category());
+                    ps.setString(p++, r.topic());
+                    ps.setString(p++, r.key());
+                    ps.setString(p++, r.type());
+                    ps.setString(p++, r.payload());
+                    ps.setString(p++, Jsons.toJson(r.headers()));
+                    PgOutboxStore.setCreatedAt(ps, p, id);
+                    p += 2;
+                    ps.setInt(p++, r.priority());
+                }
+                ps.executeQuery().close();
+                return ids;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to complete command " + commandId, e);
+            }
+        });
+    }
+}
@@ -1,102 +1,271 @@
 package com.acme.reliable.pg;
 
+import com.acme.reliable.config.OutboxConfig;
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.spi.IdGenerator;
 import com.acme.reliable.spi.OutboxStore;
 import com.acme.reliable.core.Jsons;
-import io.micronaut.transaction.TransactionOperations;
-import io.micronaut.transaction.annotation.Transactional;
+import com.acme.reliable.core.UuidV7Generator;
+import com.acme.reliable.core.Tracing;
+import io.micronaut.data.connection.ConnectionOperations;
 import jakarta.inject.Singleton;
 import java.sql.*;
 import java.util.*;
 
 /**
- * OutboxStore implementation using hybrid approach:
- * - Repository for simple updates (markPublished, reschedule)
- * - Manual JDBC for complex RETURNING queries (claim operations)
- * - TransactionOperations ensures all operations join existing transactions
+ * OutboxStore implementation using plain JDBC:
+ * - ConnectionOperations for every statement (joins the current transaction if there is one)
+ * - Claims take a lease (claimed_until) and commit on their own, so no row lock spans broker I/O
+ * - Reschedules and reaped claims signal {@link #NOTIFY_CHANNEL} so a relay wakes up when those rows become
+ *   eligible again. Inserts do not: their rows go to the fast path, which wakes the local sweep itself when it
+ *   leaves rows behind, and every NOTIFY serializes commits on the server's notification queue lock. Nothing
+ *   is signalled when relay.notify-enabled is off or under the replication engine, where nobody listens
+ * - In {@link OutboxConfig.PublishMode#DELETE} mode published rows are deleted (optionally copied to outbox_history)
+ *   instead of marked, so the claim query only ever scans in-flight rows
+ * - created_at is the database clock, clamped to within {@link #MAX_CLOCK_SKEW} of the timestamp in the
+ *   UUIDv7 id (which comes from the JVM clock), so statements by id also bound created_at and touch only
+ *   the partitions those ids can live in (ids without a timestamp fall back to all partitions). A node whose
+ *   clock is off by more than that shifts its rows' created_at by the excess; ordering and partition
+ *   lookups stay correct.
  */
 @Singleton
 public class PgOutboxStore implements OutboxStore {
-    private final OutboxRepository repository;
-    private final TransactionOperations<Connection> transactionOps;
-    private final String hostname;
-
-    public PgOutboxStore(OutboxRepository repository, TransactionOperations<Connection> transactionOps) {
-        this.repository = repository;
-        this.transactionOps = transactionOps;
-        try {
-            this.hostname = java.net.InetAddress.getLoopbackAddress().getHostName();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to get hostname", e);
+    /** Postgres channel signalled whenever an outbox row becomes (or will become) eligible for dispatch. */
+    static final String NOTIFY_CHANNEL = "outbox_ready";
+    /** Most that created_at may differ from the timestamp in the row's id. */
+    static final String MAX_CLOCK_SKEW = "interval '5 minutes'";
+    /** created_at of an inserted row: now(), kept within {@link #MAX_CLOCK_SKEW} of the id; bound by {@link #setCreatedAt}. */
+    static final String CREATED_AT_VALUE =
+        "least(greatest(now(), ?::timestamptz - " + MAX_CLOCK_SKEW + "), ?::timestamptz + " + MAX_CLOCK_SKEW + ")";
+    /** Appended to a filter on ids; bound by {@link #setCreatedAtRange}. */
+    static final String CREATED_AT_RANGE =
+        " AND created_at BETWEEN coalesce(?::timestamptz - " + MAX_CLOCK_SKEW + ", '-infinity')" +
+        " AND coalesce(?::timestamptz + " + MAX_CLOCK_SKEW + ", 'infinity')";
+
+    private final TracedConnections db;
+    private final long claimLeaseMillis;
+    private final String nodeId;
+    private final String finalizeSql;
+    private final IdGenerator idGenerator;
+    private final int[] priorityWeights;
+    private final boolean notify;
+
+    private static final List<Integer> ALL_LEVELS =
+        List.of(OutboxRow.PRIORITY_HIGH, OutboxRow.PRIORITY_NORMAL, OutboxRow.PRIORITY_LOW);
+    /** The one category of each priority level, indexed by level. */
+    private static final List<String> LEVEL_CATEGORIES = List.of("reply", "command", "event");
+
+    public PgOutboxStore(ConnectionOperations<Connection> connectionOps, RelayConfig relayConfig, OutboxConfig outboxConfig,
+                         IdGenerator idGenerator, Tracing tracing) {
+        this.db = new TracedConnections(connectionOps, tracing);
+        this.idGenerator = idGenerator;
+        this.claimLeaseMillis = relayConfig.getClaimLeaseMillis();
+        this.nodeId = relayConfig.getNodeId();
+        this.priorityWeights = relayConfig.getPriorityWeightArray();
+        this.notify = relayConfig.isNotifyEnabled() && relayConfig.isPolling();
+        this.finalizeSql = finalizeSql(outboxConfig);
+    }
+
+    static String finalizeSql(OutboxConfig config) {
+        if (config.getPublishMode() == OutboxConfig.PublishMode.MARK) {
+            return "UPDATE outbox SET status='PUBLISHED', published_at=now(), claimed_until=NULL WHERE id = ANY(?)" + CREATED_AT_RANGE;
+        }
+        if (!config.isHistory()) {
+            return "DELETE FROM outbox WHERE id = ANY(?)" + CREATED_AT_RANGE;
         }
+        return "WITH d AS (DELETE FROM outbox WHERE id = ANY(?)" + CREATED_AT_RANGE + " " +
+               "RETURNING id, category, topic, key, type, attempts, created_at) " +
+               "INSERT INTO outbox_history(id, category, topic, key, type, attempts, created_at, published_at) " +
+               "SELECT id, category, topic, key, type, attempts, created_at, now() FROM d";
     }
 
     @Override
     public UUID addReturningId(OutboxRow r) {
-        var id = r.id() != null ? r.id() : UUID.randomUUID();
+        var id = r.id() != null ? r.id() : idGenerator.newId();
         String headersJson = Jsons.toJson(r.headers());
 
-        return repository.addReturningId(
-            id,
-            r.category(),
-            r.topic(),
-            r.key(),
-            r.type(),
-            r.payload(),
-            headersJson
-        );
+        return db.write("OutboxStore.addReturningId", status -> {
+            try (var ps = status.getConnection().prepareStatement(
+                "INSERT INTO outbox(id, category, topic, key, type, payload, headers, created_at, priority) " +
+                "VALUES (?,?::outbox_category,?,?,?,?::jsonb,?::jsonb," + CREATED_AT_VALUE + ",?) RETURNING id")) {
+                ps.setObject(1, id);
+                ps.setString(2, r.category());
+                ps.setString(3, r.topic());
+                ps.setString(4, r.key());
+                ps.setString(5, r.type());
+                ps.setString(6, r.payload());
+                ps.setString(7, headersJson);
+                setCreatedAt(ps, 8, id);
+                ps.setInt(10, r.priority());
+                var rs = ps.executeQuery();
+                rs.next();
+                return (UUID) rs.getObject(1);
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to insert outbox entry", e);
+            }
+        });
     }
 
     @Override
-    public Optional<OutboxRow> claimOne(UUID id) {
-        // Use current transaction's connection if available
-        return transactionOps.findTransactionStatus()
-            .map(status -> {
-                try {
-                    Connection conn = (Connection) status.getConnection();
-                    try (var ps = conn.prepareStatement(
-                        "UPDATE outbox SET status='CLAIMED', claimed_by=? WHERE id=? AND status='NEW' " +
-                        "RETURNING id, category, topic, key, type, payload, headers, attempts")) {
-                        ps.setString(1, hostname);
-                        ps.setObject(2, id);
-                        var rs = ps.executeQuery();
-                        if (rs.next()) {
-                            return Optional.of(mapRow(rs));
-                        }
-                        return Optional.<OutboxRow>empty();
+    public Set<UUID> claimAllIfNew(Collection<UUID> ids, String claimer) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return db.write("OutboxStore.claimAllIfNew", status -> {
+            try (var ps = status.getConnection().prepareStatement(
+                "UPDATE outbox SET status='CLAIMED', claimed_by=?, claimed_until=now() + (? * interval '1 millisecond') " +
+                "WHERE id = ANY(?)" + CREATED_AT_RANGE + " AND status='NEW' RETURNING id")) {
+                ps.setString(1, claimer);
+                ps.setLong(2, claimLeaseMillis);
+                ps.setArray(3, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+                setCreatedAtRange(ps, 4, ids);
+                var claimed = new HashSet<UUID>();
+                try (var rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        claimed.add((UUID) rs.getObject(1));
                     }
-                } catch (SQLException e) {
-                    throw new RuntimeException("Failed to claim outbox entry", e);
                 }
-            })
-            .orElse(Optional.empty());
+                return claimed;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to claim outbox entries", e);
+            }
+        });
     }
 
     @Override
-    public List<OutboxRow> claim(int max, String claimer) {
-        // Use current transaction's connection if available
-        return transactionOps.findTransactionStatus()
-            .map(status -> {
-                try {
-                    Connection conn = (Connection) status.getConnection();
-                    try (var ps = conn.prepareStatement(
-                        "WITH c AS (SELECT id FROM outbox WHERE status='NEW' AND (next_at IS NULL OR next_at <= NOW()) " +
-                        "ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
-                        "UPDATE outbox o SET status='CLAIMED', claimed_by=?, attempts=o.attempts FROM c WHERE o.id=c.id " +
-                        "RETURNING o.id, o.category, o.topic, o.key, o.type, o.payload, o.headers, o.attempts")) {
-                        ps.setInt(1, max);
-                        ps.setString(2, claimer);
-                        var rs = ps.executeQuery();
-                        List<OutboxRow> result = new ArrayList<>();
-                        while (rs.next()) {
-                            result.add(mapRow(rs));
-                        }
-                        return result;
+    public List<OutboxRow> claim(int max, String claimer, ClaimScope scope) {
+        var shards = scope.shards();
+        var paused = scope.pausedTopics();
+        var levels = levels(scope);
+        if (levels.isEmpty()) {
+            return List.of();
+        }
+        return db.write("OutboxStore.claim", status -> {
+            try (var ps = status.getConnection().prepareStatement(claimSql(scope, priorityWeights))) {
+                var conn = ps.getConnection();
+                int p = 1;
+                for (int ignored : levels) {
+                    if (shards != null) {
+                        ps.setArray(p++, conn.createArrayOf("smallint", shards.toArray()));
                     }
-                } catch (SQLException e) {
-                    throw new RuntimeException("Failed to claim outbox batch", e);
+                    if (!paused.isEmpty()) {
+                        ps.setArray(p++, conn.createArrayOf("text", paused.toArray()));
+                    }
+                    ps.setInt(p++, max);
+                }
+                ps.setInt(p++, max);
+                ps.setString(p++, claimer);
+                ps.setLong(p, claimLeaseMillis);
+                var rs = ps.executeQuery();
+                List<OutboxRow> result = new ArrayList<>();
+                while (rs.next()) {
+                    result.add(mapRow(rs));
+                }
+                return result;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to claim outbox batch", e);
+            }
+        });
+    }
+
+    /**
+     * Priority levels a claim in {@code scope} can return. Priority follows category, so a scope limited
+     * to some categories only needs their levels.
+     */
+    static List<Integer> levels(ClaimScope scope) {
+        if (scope.categories() == null) {
+            return ALL_LEVELS;
+        }
+        return scope.categories().stream().map(OutboxRow::priorityOf).distinct().sorted().toList();
+    }
+
+    /**
+     * Builds the claim: each priority level of the scope locks up to {@code max} of its oldest due rows, then
+     * the candidates are interleaved in rounds where level {@code i} contributes {@code weights[i]} rows, and
+     * the first {@code max} are claimed. A backlog of high-priority rows therefore cannot starve the lower
+     * levels, and a level with nothing due leaves its share to the others. Row locks last until the transaction
+     * ends, so a claim holds up to {@code max} locks per level, unclaimed candidates included, until it commits;
+     * it runs in a transaction of its own unless the caller has one open. The claimed rows come back ordered
+     * by priority, then creation.
+     */
+    static String claimSql(ClaimScope scope, int[] weights) {
+        // Expired claims are returned to NEW by the reaper, so only NEW rows that are due qualify.
+        // Each level is one category, so it reads one (shard,) category range of the partial dispatch indexes in
+        // created_at order: status='NEW' selects them, next_at is read from the index. Rows of paused topics
+        // are skipped there rather than claimed, so they cost a look while their circuit is open.
+        String scopeFilter = (scope.shards() == null ? "" : "shard = ANY(?) AND ") +
+            (scope.pausedTopics().isEmpty() ? "" : "topic <> ALL(?) AND ");
+        // Row locks are not allowed inside UNION branches, so each level gets its own CTE
+        var levels = levels(scope);
+        var sql = new StringBuilder("WITH ");
+        for (int level : levels) {
+            sql.append("p").append(level).append(" AS (SELECT id, ").append(level).append(" AS priority, created_at ")
+               .append("FROM outbox WHERE ").append(scopeFilter).append("category='").append(LEVEL_CATEGORIES.get(level))
+               .append("' AND status='NEW' AND next_at <= now() ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED), ");
+        }
+        sql.append("cand AS (");
+        for (int level : levels) {
+            sql.append(level == levels.get(0) ? "" : " UNION ALL ").append("SELECT * FROM p").append(level);
+        }
+        sql.append("), c AS (SELECT id, created_at FROM (SELECT id, priority, created_at, ")
+           .append("row_number() OVER (PARTITION BY priority ORDER BY created_at) - 1 AS rn FROM cand) r ")
+           .append("ORDER BY rn / CASE priority");
+        for (int level : levels) {
+            sql.append(" WHEN ").append(level).append(" THEN ").append(Math.max(1, weights[level]));
+        }
+        sql.append(" ELSE 1 END, priority LIMIT ?), ")
+           .append("u AS (UPDATE outbox o SET status='CLAIMED', claimed_by=?, claimed_until=now() + (? * interval '1 millisecond') ")
+           // Joining on the whole key lets each row probe only its own partition
+           .append("FROM c WHERE o.id=c.id AND o.created_at=c.created_at ")
+           .append("RETURNING o.id, o.category, o.topic, o.key, o.type, o.payload, o.headers, o.attempts, o.priority, o.created_at) ")
+           // RETURNING has no defined order, so the claimed rows are sorted here for the relay's per-key lanes
+           .append("SELECT id, category, topic, key, type, payload, headers, attempts, priority FROM u ")
+           .append("ORDER BY priority, created_at, id");
+        return sql.toString();
+    }
+
+    @Override
+    public int reapExpiredClaims(int max) {
+        // Counted as a failed attempt, so a row that keeps killing its relay backs off like any other failure
+        return db.write("OutboxStore.reapExpiredClaims", status -> {
+            try (var ps = status.getConnection().prepareStatement(
+                "WITH c AS (SELECT id, created_at FROM outbox WHERE status='CLAIMED' AND claimed_until < now() " +
+                "           ORDER BY claimed_until LIMIT ? FOR UPDATE SKIP LOCKED), " +
+                "upd AS (UPDATE outbox o SET status='NEW', claimed_by=NULL, claimed_until=NULL, " +
+                "        attempts=o.attempts+1, last_error='Claim expired before the row was finalized' " +
+                "        FROM c WHERE o.id=c.id AND o.created_at=c.created_at RETURNING o.id) " +
+                (notify ? ", n AS (SELECT pg_notify('" + NOTIFY_CHANNEL + "', '0') FROM upd LIMIT 1) " : "") +
+                "SELECT (SELECT count(*) FROM upd)" + (notify ? ", (SELECT count(*) FROM n)" : ""))) {
+                ps.setInt(1, max);
+                try (var rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
                 }
-            })
-            .orElseGet(ArrayList::new);
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to reap expired outbox claims", e);
+            }
+        });
+    }
+
+    @Override
+    public List<Backlog> backlog() {
+        // Same predicate as the claim and only columns of the partial, category-led dispatch index (next_at is
+        // included), so a partition with rows in it can be read with an index-only scan
+        return db.read("OutboxStore.backlog", status -> {
+            try (var ps = status.getConnection().prepareStatement(
+                "SELECT category::text, count(*), " +
+                "       (extract(epoch FROM now() - min(created_at)) * 1000)::bigint " +
+                "FROM outbox WHERE status='NEW' AND next_at <= now() GROUP BY category");
+                 var rs = ps.executeQuery()) {
+                List<Backlog> result = new ArrayList<>();
+                while (rs.next()) {
+                    result.add(new Backlog(rs.getString(1), rs.getLong(2), Math.max(0, rs.getLong(3))));
+                }
+                return result;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to read outbox backlog", e);
+            }
+        });
     }
 
     private OutboxRow mapRow(ResultSet rs) throws SQLException {
@@ -110,17 +279,125 @@ public class PgOutboxStore implements OutboxStore {
             rs.getString(5),
             rs.getString(6),
             headers,
-            rs.getInt(8)
+            rs.getInt(8),
+            rs.getInt(9)
         );
     }
 
     @Override
-    public void markPublished(UUID id) {
-        repository.markPublished(id);
+    public void markAllPublished(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        exec("OutboxStore.markAllPublished", finalizeSql, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+            setCreatedAtRange(ps, 2, ids);
+        });
+    }
+
+    @Override
+    public void rescheduleAll(List<Reschedule> reschedules) {
+        if (reschedules.isEmpty()) {
+            return;
+        }
+        UUID[] ids = new UUID[reschedules.size()];
+        Long[] backoffs = new Long[reschedules.size()];
+        String[] errors = new String[reschedules.size()];
+        for (int i = 0; i < reschedules.size(); i++) {
+            var r = reschedules.get(i);
+            ids[i] = r.id();
+            backoffs[i] = r.backoffMillis();
+            errors[i] = r.error();
+        }
+        // One notification per distinct backoff, so the listener wakes the relay for each due time
+        exec("OutboxStore.rescheduleAll", "WITH r AS (SELECT * FROM unnest(?::uuid[], ?::bigint[], ?::text[]) AS r(id, backoff_ms, err)), " +
+             "u AS (UPDATE outbox o SET status='NEW', next_at=now() + (r.backoff_ms * interval '1 millisecond'), " +
+             "claimed_until=NULL, attempts=o.attempts+1, last_error=r.err FROM r WHERE o.id=r.id" + CREATED_AT_RANGE +
+             " RETURNING r.backoff_ms) " +
+             (notify ? "SELECT pg_notify('" + NOTIFY_CHANNEL + "', d.backoff_ms::text) FROM (SELECT DISTINCT backoff_ms FROM u) d"
+                     : "SELECT count(*) FROM u"), ps -> {
+            var conn = ps.getConnection();
+            ps.setArray(1, conn.createArrayOf("uuid", ids));
+            ps.setArray(2, conn.createArrayOf("bigint", backoffs));
+            ps.setArray(3, conn.createArrayOf("text", errors));
+            setCreatedAtRange(ps, 4, Arrays.asList(ids));
+        });
     }
 
     @Override
-    public void reschedule(UUID id, long backoffMs, String err) {
-        repository.reschedule(id, backoffMs, err);
+    public void releaseAll(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        exec("OutboxStore.releaseAll", "UPDATE outbox SET status='NEW', claimed_by=NULL, claimed_until=NULL " +
+             "WHERE id = ANY(?)" + CREATED_AT_RANGE + " AND status='CLAIMED'", ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+            setCreatedAtRange(ps, 2, ids);
+        });
+    }
+
+    @Override
+    public void parkAll(Map<UUID, String> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        UUID[] ids = errors.keySet().toArray(UUID[]::new);
+        String[] messages = Arrays.stream(ids).map(errors::get).toArray(String[]::new);
+        exec("OutboxStore.parkAll", "UPDATE outbox o SET next_at='infinity', attempts=o.attempts+1, last_error=r.err " +
+             "FROM unnest(?::uuid[], ?::text[]) AS r(id, err) WHERE o.id=r.id" + CREATED_AT_RANGE, ps -> {
+            var conn = ps.getConnection();
+            ps.setArray(1, conn.createArrayOf("uuid", ids));
+            ps.setArray(2, conn.createArrayOf("text", messages));
+            setCreatedAtRange(ps, 3, Arrays.asList(ids));
+        });
+    }
+
+    /** The creation time carried by a UUIDv7 id, or null when it carries none. */
+    static Timestamp createdAt(UUID id) {
+        var t = UuidV7Generator.timestampOf(id);
+        return t == null ? null : Timestamp.from(t);
+    }
+
+    /**
+     * Binds the two {@link #CREATED_AT_VALUE} parameters for a row with {@code id}; an id without a
+     * timestamp leaves created_at at now().
+     */
+    static void setCreatedAt(PreparedStatement ps, int index, UUID id) throws SQLException {
+        var t = createdAt(id);
+        ps.setTimestamp(index, t);
+        ps.setTimestamp(index + 1, t);
+    }
+
+    /**
+     * Binds the two {@link #CREATED_AT_RANGE} parameters to the span of creation times of {@code ids},
+     * or leaves the range open when any id carries no timestamp.
+     */
+    static void setCreatedAtRange(PreparedStatement ps, int index, Collection<UUID> ids) throws SQLException {
+        Timestamp min = null;
+        Timestamp max = null;
+        for (UUID id : ids) {
+            var t = createdAt(id);
+            if (t == null) {
+                min = null;
+                max = null;
+                break;
+            }
+            min = min == null || t.before(min) ? t : min;
+            max = max == null || t.after(max) ? t : max;
+        }
+        ps.setTimestamp(index, min);
+        ps.setTimestamp(index + 1, max);
+    }
+
+    private void exec(String operation, String sql, PgCommandStore.SqlApplier a) {
+        db.write(operation, status -> {
+            try (var ps = status.getConnection().prepareStatement(sql)) {
+                a.apply(ps);
+                ps.execute();
+                return null;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
     }
 }
@@ -0,0 +1,148 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.core.Jsons;
+import com.acme.reliable.spi.OutboxStore.OutboxRow;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Decodes the pgoutput logical replication protocol (version 1) into committed outbox inserts.
+ * Relation messages are remembered so insert tuples can be read by column name; inserts are collected
+ * between Begin and Commit and handed out as one {@link Transaction} per commit, in commit order.
+ * Messages for other relations and other message types are ignored.
+ */
+final class PgOutputDecoder {
+
+    /**
+     * The outbox rows inserted by one committed transaction. {@code endLsn} is the position to confirm
+     * once they are published.
+     */
+    record Transaction(long commitLsn, long endLsn, List<OutboxRow> rows) {}
+
+    private record Relation(String name, String[] columns) {
+        int indexOf(String column) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equals(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final String table;
+    private final Map<Integer, Relation> relations = new HashMap<>();
+    private List<OutboxRow> current;
+
+    PgOutputDecoder(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Feeds one message and returns the transaction it completes, or null when it completes none.
+     */
+    Transaction decode(ByteBuffer msg) {
+        byte type = msg.get();
+        switch (type) {
+            case 'B' -> current = new ArrayList<>();
+            case 'R' -> readRelation(msg);
+            case 'I' -> readInsert(msg);
+            case 'C' -> {
+                msg.get(); // flags, unused
+                long commitLsn = msg.getLong();
+                long endLsn = msg.getLong();
+                var rows = current == null ? List.<OutboxRow>of() : current;
+                current = null;
+                return new Transaction(commitLsn, endLsn, rows);
+            }
+            default -> {
+                // Origin, type, truncate, update, delete and logical messages carry nothing to publish
+            }
+        }
+        return null;
+    }
+
+    private void readRelation(ByteBuffer msg) {
+        int relationId = msg.getInt();
+        readString(msg); // namespace
+        String name = readString(msg);
+        msg.get(); // replica identity
+        String[] columns = new String[msg.getShort()];
+        for (int i = 0; i < columns.length; i++) {
+            msg.get(); // flags
+            columns[i] = readString(msg);
+            msg.getInt(); // type oid
+            msg.getInt(); // type modifier
+        }
+        relations.put(relationId, new Relation(name, columns));
+    }
+
+    private void readInsert(ByteBuffer msg) {
+        var relation = relations.get(msg.getInt());
+        msg.get(); // 'N', a new tuple follows
+        String[] values = readTuple(msg);
+        if (relation == null || !relation.name().equals(table)) {
+            return;
+        }
+        if (current == null) {
+            throw new IllegalStateException("Insert outside of a transaction");
+        }
+        current.add(toRow(relation, values));
+    }
+
+    private static String[] readTuple(ByteBuffer msg) {
+        String[] values = new String[msg.getShort()];
+        for (int i = 0; i < values.length; i++) {
+            byte kind = msg.get();
+            switch (kind) {
+                case 'n', 'u' -> values[i] = null;
+                case 't' -> {
+                    byte[] bytes = new byte[msg.getInt()];
+                    msg.get(bytes);
+                    values[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+                default -> throw new IllegalStateException("Unsupported tuple data kind '" + (char) kind + "'");
+            }
+        }
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static OutboxRow toRow(Relation relation, String[] values) {
+        String headers = value(relation, values, "headers");
+        String attempts = value(relation, values, "attempts");
+        String priority = value(relation, values, "priority");
+        String category = value(relation, values, "category");
+        return new OutboxRow(
+            UUID.fromString(value(relation, values, "id")),
+            category,
+            value(relation, values, "topic"),
+            value(relation, values, "key"),
+            value(relation, values, "type"),
+            value(relation, values, "payload"),
+            headers != null ? Jsons.fromJson(headers, Map.class) : Map.of(),
+            attempts != null ? Integer.parseInt(attempts) : 0,
+            priority != null ? Integer.parseInt(priority) : OutboxRow.priorityOf(category));
+    }
+
+    private static String value(Relation relation, String[] values, String column) {
+        int i = relation.indexOf(column);
+        return i < 0 || i >= values.length ? null : values[i];
+    }
+
+    private static String readString(ByteBuffer msg) {
+        int start = msg.position();
+        while (msg.get() != 0) {
+            // scan to the terminating zero byte
+        }
+        byte[] bytes = new byte[msg.position() - start - 1];
+        msg.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
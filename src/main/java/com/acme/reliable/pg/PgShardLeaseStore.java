@@ -0,0 +1,127 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.spi.ShardLeaseStore;
+import io.micronaut.data.connection.ConnectionOperations;
+import jakarta.inject.Singleton;
+import java.sql.*;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+@Singleton
+public class PgShardLeaseStore implements ShardLeaseStore {
+    private final ConnectionOperations<Connection> connectionOps;
+
+    public PgShardLeaseStore(ConnectionOperations<Connection> connectionOps) {
+        this.connectionOps = connectionOps;
+    }
+
+    @Override
+    public int heartbeat(String node, long ttlMillis) {
+        return connectionOps.executeWrite(status -> {
+            try (var ps = status.getConnection().prepareStatement(
+                "with hb as (insert into relay_node(node_id, heartbeat_at) values (?, now()) " +
+                "            on conflict (node_id) do update set heartbeat_at = now()), " +
+                "gone as (delete from relay_node where heartbeat_at < now() - (? * interval '1 millisecond') and node_id <> ?) " +
+                // The upsert is not visible to this statement's snapshot, so this node is counted separately
+                "select 1 + count(*) from relay_node where node_id <> ? and heartbeat_at >= now() - (? * interval '1 millisecond')")) {
+                ps.setString(1, node);
+                ps.setLong(2, ttlMillis);
+                ps.setString(3, node);
+                ps.setString(4, node);
+                ps.setLong(5, ttlMillis);
+                try (var rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to record relay heartbeat", e);
+            }
+        });
+    }
+
+    @Override
+    public int shardCount() {
+        return connectionOps.executeRead(status -> {
+            try (var ps = status.getConnection().prepareStatement("select count(*) from relay_shard");
+                 var rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Override
+    public Set<Integer> renew(String node, long leaseMillis) {
+        return shards(
+            "update relay_shard set lease_until = now() + (? * interval '1 millisecond') " +
+            "where owner = ? and lease_until >= now() returning shard", ps -> {
+                ps.setLong(1, leaseMillis);
+                ps.setString(2, node);
+            });
+    }
+
+    @Override
+    public Set<Integer> acquire(String node, int max, long leaseMillis) {
+        if (max <= 0) {
+            return Set.of();
+        }
+        return shards(
+            "with c as (select shard from relay_shard where owner is null or lease_until < now() " +
+            "           order by shard limit ? for update skip locked) " +
+            "update relay_shard s set owner = ?, lease_until = now() + (? * interval '1 millisecond') " +
+            "from c where s.shard = c.shard returning s.shard", ps -> {
+                ps.setInt(1, max);
+                ps.setString(2, node);
+                ps.setLong(3, leaseMillis);
+            });
+    }
+
+    @Override
+    public void release(String node, Collection<Integer> shards) {
+        if (shards.isEmpty()) {
+            return;
+        }
+        exec("update relay_shard set owner = null, lease_until = null where owner = ? and shard = any(?)", ps -> {
+            ps.setString(1, node);
+            ps.setArray(2, ps.getConnection().createArrayOf("smallint", shards.toArray()));
+        });
+    }
+
+    @Override
+    public void leave(String node) {
+        exec("update relay_shard set owner = null, lease_until = null where owner = ?", ps -> ps.setString(1, node));
+        exec("delete from relay_node where node_id = ?", ps -> ps.setString(1, node));
+    }
+
+    private Set<Integer> shards(String sql, PgCommandStore.SqlApplier a) {
+        return connectionOps.executeWrite(status -> {
+            try (var ps = status.getConnection().prepareStatement(sql)) {
+                a.apply(ps);
+                var result = new HashSet<Integer>();
+                try (var rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        result.add(rs.getInt(1));
+                    }
+                }
+                return result;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to update relay shard leases", e);
+            }
+        });
+    }
+
+    private void exec(String sql, PgCommandStore.SqlApplier a) {
+        connectionOps.executeWrite(status -> {
+            try (var ps = status.getConnection().prepareStatement(sql)) {
+                a.apply(ps);
+                ps.executeUpdate();
+                return null;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.core.Tracing;
+import io.micronaut.data.connection.ConnectionOperations;
+import io.micronaut.data.connection.ConnectionStatus;
+
+import java.sql.Connection;
+import java.util.function.Function;
+
+/**
+ * Runs the Postgres stores' JDBC work through {@link ConnectionOperations} (joining the current transaction
+ * if there is one), each call in a database client span named after the store operation.
+ */
+final class TracedConnections {
+    private final ConnectionOperations<Connection> connectionOps;
+    private final Tracing tracing;
+
+    TracedConnections(ConnectionOperations<Connection> connectionOps, Tracing tracing) {
+        this.connectionOps = connectionOps;
+        this.tracing = tracing;
+    }
+
+    <T> T write(String operation, Function<ConnectionStatus<Connection>, T> work) {
+        return tracing.inDbSpan(operation, () -> connectionOps.executeWrite(work));
+    }
+
+    <T> T read(String operation, Function<ConnectionStatus<Connection>, T> work) {
+        return tracing.inDbSpan(operation, () -> connectionOps.executeRead(work));
+    }
+}
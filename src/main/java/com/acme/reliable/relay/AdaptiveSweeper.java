@@ -0,0 +1,172 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.config.TimeoutConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives relay sweeps for one {@link OutboxRelay.CategoryGroup} at the pace of its backlog instead of a fixed schedule:
+ * <ul>
+ *   <li>while batches come back full it sweeps again immediately;</li>
+ *   <li>the batch size doubles while a full batch is claimed and published well within the target latency,
+ *       and halves when a batch takes longer than the target;</li>
+ *   <li>when sweeps find nothing, the wait between them doubles from {@code relay.sweep-min-interval}
+ *       up to {@code timeout.outbox-sweep-interval}.</li>
+ * </ul>
+ * {@link #wake()} cuts the wait short. With {@code relay.sweep-enabled=false} no loop runs and a wakeup
+ * drains on the caller's thread. Instances are owned by {@link SweepLoops}.
+ */
+public class AdaptiveSweeper {
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveSweeper.class);
+
+    private final OutboxRelay relay;
+    private final OutboxRelay.CategoryGroup group;
+    private final boolean enabled;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetNanos;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final Object signal = new Object();
+    private final AtomicLong sweeps = new AtomicLong();
+    private final AtomicLong rowsClaimed = new AtomicLong();
+    private volatile int batchSize;
+    private volatile long idleMillis;
+    private volatile boolean running;
+    private boolean wakeRequested;
+    private Thread loop;
+
+    AdaptiveSweeper(OutboxRelay relay, OutboxRelay.CategoryGroup group, TimeoutConfig timeoutConfig, RelayConfig relayConfig) {
+        this.relay = relay;
+        this.group = group;
+        this.enabled = relayConfig.isSweepEnabled();
+        this.minBatchSize = Math.max(1, relayConfig.getSweepMinBatchSize());
+        this.maxBatchSize = Math.max(minBatchSize, relayConfig.getSweepMaxBatchSize());
+        this.targetNanos = relayConfig.getSweepTargetLatency().toNanos();
+        this.minIntervalMillis = Math.max(1, relayConfig.getSweepMinInterval().toMillis());
+        this.maxIntervalMillis = Math.max(minIntervalMillis, timeoutConfig.getOutboxSweepInterval().toMillis());
+        this.batchSize = Math.min(maxBatchSize, Math.max(minBatchSize, timeoutConfig.getOutboxBatchSize()));
+    }
+
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        loop = new Thread(this::run, "outbox-sweeper-" + group.name());
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    /**
+     * Asks for a sweep now rather than after the current idle wait.
+     */
+    public void wake() {
+        if (loop == null) {
+            drain();
+            return;
+        }
+        synchronized (signal) {
+            wakeRequested = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long delay;
+            try {
+                delay = drain();
+            } catch (Throwable e) {
+                // Whatever a sweep throws, the loop carries on; a dead loop would leave the group unswept
+                LOG.warn("Outbox sweep of {} rows failed", group.name(), e);
+                delay = nextIdleDelay();
+            }
+            await(delay);
+        }
+    }
+
+    /**
+     * Sweeps until a batch comes back short and returns how long to wait before the next sweep.
+     */
+    synchronized long drain() {
+        while (true) {
+            int requested = batchSize;
+            long start = System.nanoTime();
+            int claimed = relay.sweep(requested, group.categories());
+            record(requested, claimed, System.nanoTime() - start);
+            if (claimed == 0) {
+                return nextIdleDelay();
+            }
+            idleMillis = 0;
+            if (claimed < requested || (loop != null && !running)) {
+                return minIntervalMillis;
+            }
+        }
+    }
+
+    void record(int requested, int claimed, long elapsedNanos) {
+        sweeps.incrementAndGet();
+        rowsClaimed.addAndGet(claimed);
+        if (claimed == 0) {
+            return;
+        }
+        if (elapsedNanos > targetNanos) {
+            batchSize = Math.max(minBatchSize, requested / 2);
+        } else if (claimed == requested && elapsedNanos < targetNanos / 2) {
+            batchSize = Math.min(maxBatchSize, requested * 2);
+        }
+    }
+
+    private long nextIdleDelay() {
+        idleMillis = idleMillis == 0 ? minIntervalMillis : Math.min(maxIntervalMillis, idleMillis * 2);
+        return idleMillis;
+    }
+
+    private void await(long delayMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        synchronized (signal) {
+            try {
+                long remaining;
+                while (!wakeRequested && running && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(signal, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            wakeRequested = false;
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    public long getSweeps() {
+        return sweeps.get();
+    }
+
+    public long getRowsClaimed() {
+        return rowsClaimed.get();
+    }
+
+    public OutboxRelay.CategoryGroup getGroup() {
+        return group;
+    }
+
+    void shutdown() {
+        running = false;
+        if (loop != null) {
+            loop.interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.acme.reliable.relay;
+
+/**
+ * Breaker for one destination. Opens after {@code failureThreshold} consecutive failed batches,
+ * rejects sends while open, then lets a single probe batch through (half-open): a delivered probe
+ * closes it, a failed one opens it again.
+ */
+final class CircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long changedAt;
+
+    CircuitBreaker(int failureThreshold, long openNanos) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Whether a batch may be sent now; moving from open to half-open admits the caller as the probe.
+     */
+    synchronized boolean allow(long now) {
+        return switch (state) {
+            case CLOSED -> true;
+            // A probe that never reported back (its relay died) is replaced after another open period
+            case OPEN, HALF_OPEN -> {
+                if (now - changedAt < openNanos) {
+                    yield false;
+                }
+                state = State.HALF_OPEN;
+                changedAt = now;
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * Whether rows for this destination should be left unclaimed: open and not yet due for a probe,
+     * or a probe is in flight.
+     */
+    synchronized boolean isPaused(long now) {
+        return state != State.CLOSED && now - changedAt < openNanos;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    synchronized void onFailure(long now) {
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            changedAt = now;
+            consecutiveFailures = 0;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,81 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.spi.OutboxStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Returns outbox rows stuck in CLAIMED (their relay died or lost its connection between claim and
+ * finalize) to NEW once the claim lease has expired, in bounded batches, so they are swept again.
+ * Exported as the {@code outbox.reaper.*} meters.
+ */
+@Singleton
+public class ClaimReaper {
+    private static final Logger LOG = LoggerFactory.getLogger(ClaimReaper.class);
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final OutboxStore store;
+    private final int batchSize;
+    private final AtomicLong reaped = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+    private volatile int lastRunReaped;
+
+    public ClaimReaper(OutboxStore store, RelayConfig relayConfig, MeterRegistry registry) {
+        this.store = store;
+        this.batchSize = Math.max(1, relayConfig.getReaperBatchSize());
+        FunctionCounter.builder("outbox.reaper.reaped", this, ClaimReaper::getReaped)
+            .description("Outbox rows with expired claims returned to NEW")
+            .baseUnit("rows")
+            .register(registry);
+        FunctionCounter.builder("outbox.reaper.runs", this, ClaimReaper::getRuns)
+            .description("Reaper runs")
+            .register(registry);
+        Gauge.builder("outbox.reaper.last.run.reaped", this, ClaimReaper::getLastRunReaped)
+            .description("Outbox rows the last reaper run returned to NEW")
+            .baseUnit("rows")
+            .register(registry);
+    }
+
+    @Scheduled(fixedDelay = "${relay.reaper-interval:30s}", initialDelay = "${relay.reaper-interval:30s}")
+    void reapOnce() {
+        int total = 0;
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                int n = store.reapExpiredClaims(batchSize);
+                total += n;
+                if (n < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            LOG.warn("Reaping expired outbox claims failed", e);
+        } finally {
+            runs.incrementAndGet();
+            reaped.addAndGet(total);
+            lastRunReaped = total;
+        }
+        if (total > 0) {
+            LOG.info("Returned {} outbox rows with expired claims to NEW", total);
+        }
+    }
+
+    public long getReaped() {
+        return reaped.get();
+    }
+
+    public int getLastRunReaped() {
+        return lastRunReaped;
+    }
+
+    public long getRuns() {
+        return runs.get();
+    }
+}
@@ -0,0 +1,83 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * One {@link CircuitBreaker} per outbox destination (MQ queue or Kafka topic). While a destination's
+ * breaker is open its rows are left out of claims, so an unreachable broker or topic does not hold up
+ * rows for the others.
+ */
+@Singleton
+public class DestinationBreakers {
+    private static final Logger LOG = LoggerFactory.getLogger(DestinationBreakers.class);
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    public DestinationBreakers(RelayConfig relayConfig) {
+        this(relayConfig, System::nanoTime);
+    }
+
+    DestinationBreakers(RelayConfig relayConfig, LongSupplier clock) {
+        this.failureThreshold = relayConfig.getBreakerFailureThreshold();
+        this.openNanos = relayConfig.getBreakerOpenDuration().toNanos();
+        this.clock = clock;
+    }
+
+    public boolean allow(String destination) {
+        var breaker = breakers.get(destination);
+        return breaker == null || breaker.allow(clock.getAsLong());
+    }
+
+    /**
+     * Records the outcome of one batch to {@code destination}: delivered if any of its rows went out.
+     */
+    public void record(String destination, boolean delivered) {
+        if (delivered) {
+            var breaker = breakers.get(destination);
+            if (breaker != null) {
+                var before = breaker.state();
+                breaker.onSuccess();
+                if (before != CircuitBreaker.State.CLOSED) {
+                    LOG.info("Circuit for destination {} closed", destination);
+                }
+            }
+            return;
+        }
+        var breaker = breakers.computeIfAbsent(destination, d -> new CircuitBreaker(failureThreshold, openNanos));
+        var before = breaker.state();
+        breaker.onFailure(clock.getAsLong());
+        if (before != CircuitBreaker.State.OPEN && breaker.state() == CircuitBreaker.State.OPEN) {
+            LOG.warn("Circuit for destination {} opened; its rows are not claimed for {}ms",
+                destination, openNanos / 1_000_000);
+        }
+    }
+
+    /** Destinations whose rows should not be claimed right now. */
+    public Set<String> pausedDestinations() {
+        long now = clock.getAsLong();
+        return breakers.entrySet().stream()
+            .filter(e -> e.getValue().isPaused(now))
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /** Breaker state by destination, for destinations that have failed at least once. */
+    public Map<String, String> getStates() {
+        var states = new TreeMap<String, String>();
+        breakers.forEach((d, b) -> states.put(d, b.state().name()));
+        return states;
+    }
+}
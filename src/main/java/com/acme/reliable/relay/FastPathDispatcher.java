@@ -0,0 +1,164 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.spi.OutboxStore.OutboxRow;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Takes committed outbox rows off the committing thread and publishes them on a small pool of
+ * publisher threads, started with the application and stopped when it shuts down. Each thread drains
+ * whatever has queued up (rows from many transactions) and publishes it as one batch. When the queue is
+ * full, or the threads are not running, the rows are left to the sweep, which finds them still NEW, so a
+ * slow broker never blocks HTTP or listener threads. Under the replication engine no publisher threads run
+ * and submitted rows are left to the replication stream. Queue depth and row counts are exported as the
+ * {@code outbox.fast.*} meters.
+ */
+@Singleton
+public class FastPathDispatcher implements ApplicationEventListener<StartupEvent> {
+    private static final Logger LOG = LoggerFactory.getLogger(FastPathDispatcher.class);
+
+    private final OutboxRelay relay;
+    private final SweepTrigger sweepTrigger;
+    private final BlockingQueue<OutboxRow> queue;
+    private final int batchSize;
+    private final int threads;
+    private final List<Thread> publishers = new ArrayList<>();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong droppedToSweep = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final boolean enabled;
+    private volatile boolean running;
+
+    public FastPathDispatcher(OutboxRelay relay, SweepTrigger sweepTrigger, RelayConfig relayConfig, MeterRegistry registry) {
+        this.relay = relay;
+        this.sweepTrigger = sweepTrigger;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, relayConfig.getFastPathQueueCapacity()));
+        this.batchSize = Math.max(1, relayConfig.getFastPathBatchSize());
+        this.threads = Math.max(1, relayConfig.getFastPathThreads());
+        this.enabled = relayConfig.isPolling();
+        Gauge.builder("outbox.fast.queue.depth", this, FastPathDispatcher::getQueueDepth)
+            .description("Committed rows waiting for a fast-path publisher")
+            .baseUnit("rows")
+            .register(registry);
+        Gauge.builder("outbox.fast.queue.capacity", this, FastPathDispatcher::getQueueCapacity)
+            .description("Rows the fast-path queue holds before leaving them to the sweep")
+            .baseUnit("rows")
+            .register(registry);
+        FunctionCounter.builder("outbox.fast.dispatched", this, FastPathDispatcher::getDispatched)
+            .description("Rows claimed and delivered by the fast path")
+            .baseUnit("rows")
+            .register(registry);
+        FunctionCounter.builder("outbox.fast.dropped", this, FastPathDispatcher::getDroppedToSweep)
+            .description("Rows left to the sweep because the fast-path queue was full")
+            .baseUnit("rows")
+            .register(registry);
+        FunctionCounter.builder("outbox.fast.failed.batches", this, FastPathDispatcher::getFailedBatches)
+            .description("Fast-path batches that failed before they were finalized")
+            .register(registry);
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(StartupEvent event) {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(this::run, "outbox-fast-path-" + i);
+            t.setDaemon(true);
+            t.start();
+            publishers.add(t);
+        }
+    }
+
+    /**
+     * Queues rows for publishing without blocking. Rows that do not fit are left to the sweep.
+     */
+    public void submit(List<OutboxRow> rows) {
+        if (!enabled) {
+            return;
+        }
+        int dropped = 0;
+        for (OutboxRow row : rows) {
+            if (!running || !queue.offer(row)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            droppedToSweep.addAndGet(dropped);
+            sweepTrigger.wakeAfter(0);
+        }
+    }
+
+    private void run() {
+        List<OutboxRow> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                OutboxRow first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                // Rows a sweep claimed first are not counted
+                dispatched.addAndGet(relay.publishNow(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Claimed rows are rescheduled by the relay; anything else is still NEW for the sweep
+                failedBatches.incrementAndGet();
+                LOG.warn("Fast-path publish of {} outbox rows failed, leaving them to the sweep", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    /**
+     * Rows claimed and delivered by the fast path.
+     */
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    public long getDroppedToSweep() {
+        return droppedToSweep.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        running = false;
+        publishers.forEach(Thread::interrupt);
+        publishers.clear();
+        // Queued rows are committed and still NEW, so the next sweep publishes them
+        LOG.info("Fast-path dispatcher stopped with {} rows left to the sweep", queue.size());
+    }
+}
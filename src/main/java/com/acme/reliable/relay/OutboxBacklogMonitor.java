@@ -0,0 +1,85 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.spi.OutboxStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples the outbox backlog (due rows not yet claimed) per category on a schedule and exposes it as the
+ * gauges {@code outbox.backlog.rows} and {@code outbox.backlog.oldest.age}, so scrapes never query the outbox.
+ * The replication engine never claims rows, so it has no backlog to sample.
+ */
+@Singleton
+public class OutboxBacklogMonitor {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxBacklogMonitor.class);
+
+    private final OutboxStore store;
+    private final boolean enabled;
+    private final Map<String, AtomicLong> rows = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> oldestAgeMillis = new ConcurrentHashMap<>();
+
+    public OutboxBacklogMonitor(OutboxStore store, RelayConfig relayConfig, MeterRegistry registry) {
+        this.store = store;
+        this.enabled = relayConfig.isPolling();
+        for (OutboxRelay.CategoryGroup group : OutboxRelay.CATEGORY_GROUPS) {
+            for (String category : group.categories()) {
+                var count = rows.computeIfAbsent(category, c -> new AtomicLong());
+                var age = oldestAgeMillis.computeIfAbsent(category, c -> new AtomicLong());
+                Gauge.builder("outbox.backlog.rows", count, AtomicLong::get)
+                    .description("Due outbox rows not yet claimed")
+                    .tag("category", category)
+                    .register(registry);
+                TimeGauge.builder("outbox.backlog.oldest.age", age, TimeUnit.MILLISECONDS, AtomicLong::get)
+                    .description("Age of the oldest due outbox row not yet claimed")
+                    .tag("category", category)
+                    .register(registry);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = "${relay.backlog-sample-interval:15s}", initialDelay = "${relay.backlog-sample-interval:15s}")
+    void sample() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            var seen = new HashSet<String>();
+            for (OutboxStore.Backlog b : store.backlog()) {
+                seen.add(b.category());
+                rows.computeIfAbsent(b.category(), c -> new AtomicLong()).set(b.rows());
+                oldestAgeMillis.computeIfAbsent(b.category(), c -> new AtomicLong()).set(b.oldestAgeMillis());
+            }
+            // Categories missing from the result have nothing due
+            rows.forEach((category, count) -> {
+                if (!seen.contains(category)) {
+                    count.set(0);
+                    oldestAgeMillis.get(category).set(0);
+                }
+            });
+        } catch (Exception e) {
+            LOG.warn("Sampling the outbox backlog failed", e);
+        }
+    }
+
+    public long getBacklogRows(String category) {
+        var count = rows.get(category);
+        return count == null ? 0 : count.get();
+    }
+
+    public long getOldestAgeMillis(String category) {
+        var age = oldestAgeMillis.get(category);
+        return age == null ? 0 : age.get();
+    }
+}
@@ -1,62 +1,383 @@
 package com.acme.reliable.relay;
 
+import com.acme.reliable.config.RelayConfig;
 import com.acme.reliable.config.TimeoutConfig;
+import com.acme.reliable.core.Tracing;
 import com.acme.reliable.spi.OutboxStore;
 import com.acme.reliable.spi.CommandQueue;
 import com.acme.reliable.spi.EventPublisher;
-import io.micronaut.scheduling.annotation.Scheduled;
-import io.micronaut.transaction.annotation.Transactional;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Publishes outbox rows in three steps that never overlap:
+ * claim (a short statement that leases the rows), publish (broker I/O with no DB transaction open)
+ * and finalize (mark published or reschedule). A relay that dies mid-batch leaves leased rows behind,
+ * which the {@link ClaimReaper} returns to NEW once their lease expires.
+ * <p>
+ * Rows are published on {@code relay.lanes} lanes chosen by hashing the row key. Each lane is a single
+ * thread, so rows with the same key go out in claim order (priority, then creation) while different keys
+ * proceed in parallel. Lanes only order rows within this node: two relay nodes, or a sweep and a fast-path
+ * batch, can still publish rows with the same key at the same time.
+ * <p>
+ * MQ rows (commands, replies) and Kafka rows (events) form separate {@link CategoryGroup}s with their own
+ * lanes and sweep loops, and every destination has a circuit breaker in {@link DestinationBreakers}, so an
+ * outage on one broker or destination does not stall rows bound elsewhere.
+ * <p>
+ * Each row is sent in a producer span whose parent is the trace context stored in its headers, and the
+ * message carries the producer span's context on, so consumers see the relay hop in the trace.
+ */
 @Singleton
 public class OutboxRelay {
+    /** Categories published through the same broker. */
+    public record CategoryGroup(String name, Set<String> categories) {}
+
+    public static final List<CategoryGroup> CATEGORY_GROUPS = List.of(
+        new CategoryGroup("mq", Set.of("command", "reply")),
+        new CategoryGroup("kafka", Set.of("event")));
+
     private final OutboxStore store;
     private final CommandQueue mq;
     private final EventPublisher kafka;
     private final long maxBackoffMillis;
-    private final int batchSize;
+    private final long ackTimeoutMillis;
+    private final int laneCount;
+    private final Map<String, ThreadPoolExecutor[]> lanesByGroup = new LinkedHashMap<>();
+    private final ShardOwnership shards;
+    private final DestinationBreakers breakers;
+    private final RelayMetrics metrics;
+    private final Tracing tracing;
+    private final String nodeId;
 
-    public OutboxRelay(OutboxStore s, CommandQueue m, EventPublisher k, TimeoutConfig timeoutConfig) {
+    public OutboxRelay(OutboxStore s, CommandQueue m, EventPublisher k, ShardOwnership shards,
+                       DestinationBreakers breakers, RelayMetrics metrics, Tracing tracing,
+                       TimeoutConfig timeoutConfig, RelayConfig relayConfig) {
         this.store = s;
         this.mq = m;
         this.kafka = k;
+        this.shards = shards;
+        this.breakers = breakers;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.nodeId = relayConfig.getNodeId();
         this.maxBackoffMillis = timeoutConfig.getMaxBackoffMillis();
-        this.batchSize = timeoutConfig.getOutboxBatchSize();
+        this.ackTimeoutMillis = relayConfig.getAckTimeoutMillis();
+        this.laneCount = Math.max(1, relayConfig.getLanes());
+        for (CategoryGroup group : CATEGORY_GROUPS) {
+            // A single lane publishes on the calling thread
+            var lanes = new ThreadPoolExecutor[laneCount == 1 ? 0 : laneCount];
+            for (int i = 0; i < lanes.length; i++) {
+                String name = "outbox-relay-" + group.name() + "-lane-" + i;
+                lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, name);
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            lanesByGroup.put(group.name(), lanes);
+        }
+    }
+
+    /**
+     * Publishes rows that were just committed together, straight from the caller's copies; the single claim
+     * only filters out rows a sweep got to first. Rows for destinations with an open circuit are left NEW for
+     * a later sweep. Returns how many rows this call delivered.
+     */
+    public int publishNow(List<OutboxStore.OutboxRow> rows) {
+        var paused = breakers.pausedDestinations();
+        List<OutboxStore.OutboxRow> candidates = paused.isEmpty()
+            ? rows
+            : rows.stream().filter(r -> !paused.contains(r.topic())).toList();
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        Set<UUID> claimed = store.claimAllIfNew(candidates.stream().map(OutboxStore.OutboxRow::id).toList(), nodeId);
+        metrics.recordClaim(RelayMetrics.FAST, System.nanoTime() - start);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        List<OutboxStore.OutboxRow> batch = claimed.size() == candidates.size()
+            ? candidates
+            : candidates.stream().filter(r -> claimed.contains(r.id())).toList();
+        var failures = timedPublish(RelayMetrics.FAST, batch);
+        finalizeBatch(batch, failures);
+        return batch.size() - failures.size();
+    }
+
+    /**
+     * Publishes rows on the calling thread in the given order, without claiming or finalizing them, and
+     * returns the failures by row id. Used by the replication engine, which tracks progress by LSN instead.
+     */
+    public Map<UUID, Exception> publishInOrder(List<OutboxStore.OutboxRow> rows) {
+        long start = System.nanoTime();
+        var failures = publishLane(rows);
+        metrics.recordPublish(RelayMetrics.REPLICATION, System.nanoTime() - start, rows.size(), rows.size() - failures.size());
+        return failures;
+    }
+
+    /**
+     * Claims, publishes and finalizes up to {@code max} due rows of the given categories (all when null)
+     * and returns how many were claimed. Rows for destinations with an open circuit are left unclaimed.
+     * Paced by {@link AdaptiveSweeper}.
+     */
+    int sweep(int max, Set<String> categories) {
+        Set<Integer> owned = null;
+        if (shards.isEnabled()) {
+            // Only this node's shards, so nodes never contend for the same rows
+            owned = shards.ownedShards();
+            if (owned.isEmpty()) {
+                return 0;
+            }
+        }
+        long start = System.nanoTime();
+        var rows = store.claim(max, nodeId,
+            new OutboxStore.ClaimScope(owned, categories, breakers.pausedDestinations()));
+        metrics.recordClaim(RelayMetrics.SWEEP, System.nanoTime() - start);
+        if (!rows.isEmpty()) {
+            finalizeBatch(rows, timedPublish(RelayMetrics.SWEEP, rows));
+        }
+        return rows.size();
+    }
+
+    private Map<UUID, Exception> timedPublish(String path, List<OutboxStore.OutboxRow> rows) {
+        long start = System.nanoTime();
+        var failures = publish(rows);
+        metrics.recordPublish(path, System.nanoTime() - start, rows.size(), rows.size() - failures.size());
+        return failures;
+    }
+
+    /**
+     * Sends every row whose destination circuit lets it through, split across the key-hashed lanes of its
+     * category group, and returns the failures by row id; rows not in the result were published.
+     */
+    private Map<UUID, Exception> publish(List<OutboxStore.OutboxRow> rows) {
+        Map<UUID, Exception> failures = new LinkedHashMap<>();
+        Map<String, Boolean> allowed = new HashMap<>();
+        List<List<OutboxStore.OutboxRow>> batches = new ArrayList<>();
+        List<ThreadPoolExecutor> executors = new ArrayList<>();
+        Map<String, List<List<OutboxStore.OutboxRow>>> byGroup = new LinkedHashMap<>();
+        for (OutboxStore.OutboxRow r : rows) {
+            if (!allowed.computeIfAbsent(r.topic(), breakers::allow)) {
+                // The circuit opened after the claim, or its probe is already out
+                failures.put(r.id(), new CircuitOpenException(r.topic()));
+                continue;
+            }
+            var byLane = byGroup.computeIfAbsent(groupOf(r.category()), g -> {
+                List<List<OutboxStore.OutboxRow>> lanes = new ArrayList<>(laneCount);
+                for (int i = 0; i < laneCount; i++) {
+                    lanes.add(new ArrayList<>());
+                }
+                return lanes;
+            });
+            byLane.get(laneOf(r.key())).add(r);
+        }
+        for (var entry : byGroup.entrySet()) {
+            var lanes = lanesByGroup.get(entry.getKey());
+            for (int i = 0; i < laneCount; i++) {
+                if (!entry.getValue().get(i).isEmpty()) {
+                    batches.add(entry.getValue().get(i));
+                    executors.add(lanes.length == 0 ? null : lanes[i]);
+                }
+            }
+        }
+
+        List<Future<Map<UUID, Exception>>> results = new ArrayList<>(batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            var batch = batches.get(i);
+            var executor = executors.get(i);
+            results.add(executor == null
+                ? CompletableFuture.completedFuture(publishLane(batch))
+                : executor.submit(() -> publishLane(batch)));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            var batch = batches.get(i);
+            try {
+                failures.putAll(results.get(i).get());
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception c ? c : e;
+                batch.forEach(r -> failures.put(r.id(), cause));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(r -> failures.putIfAbsent(r.id(), e));
+            }
+        }
+        recordOutcomes(rows, allowed, failures);
+        return failures;
+    }
+
+    /**
+     * Reports each attempted destination to its circuit: delivered if any of its rows went out.
+     */
+    private void recordOutcomes(List<OutboxStore.OutboxRow> rows, Map<String, Boolean> allowed,
+                                Map<UUID, Exception> failures) {
+        Map<String, Boolean> delivered = new HashMap<>();
+        for (OutboxStore.OutboxRow r : rows) {
+            if (allowed.get(r.topic())) {
+                delivered.merge(r.topic(), !failures.containsKey(r.id()), Boolean::logicalOr);
+            }
+        }
+        delivered.forEach(breakers::record);
+    }
+
+    static String groupOf(String category) {
+        for (CategoryGroup group : CATEGORY_GROUPS) {
+            if (group.categories().contains(category)) {
+                return group.name();
+            }
+        }
+        // Unknown categories fail in publishLane; any group will do
+        return CATEGORY_GROUPS.get(0).name();
+    }
+
+    int laneOf(String key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode(), laneCount);
     }
 
-    @Transactional
-    public void publishNow(UUID id) {
-        store.claimOne(id).ifPresent(this::sendAndMark);
+    /**
+     * Lane queue depths of one category group: batches waiting behind the one each lane is publishing.
+     */
+    public int[] getLaneQueueDepths(String group) {
+        var lanes = lanesByGroup.get(group);
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].getQueue().size();
+        }
+        return depths;
     }
 
-    @Transactional
-    @Scheduled(fixedDelay = "${timeout.outbox-sweep-interval:30s}")
-    void sweepOnce() {
-        List<OutboxStore.OutboxRow> rows = store.claim(batchSize, host());
-        rows.forEach(this::sendAndMark);
+    public int getLaneCount() {
+        return laneCount;
     }
 
-    private void sendAndMark(OutboxStore.OutboxRow r) {
+    @PreDestroy
+    void shutdown() {
+        for (ThreadPoolExecutor[] lanes : lanesByGroup.values()) {
+            for (ThreadPoolExecutor lane : lanes) {
+                lane.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Sends the rows of one lane in order and returns the failures by row id.
+     * Kafka sends are pipelined first, MQ rows go out as one batch (few commits) while Kafka works,
+     * and the Kafka acks are then awaited together, so an event only counts as published once acknowledged.
+     */
+    private Map<UUID, Exception> publishLane(List<OutboxStore.OutboxRow> rows) {
+        Map<UUID, Exception> failures = new LinkedHashMap<>();
+        Map<UUID, CompletableFuture<EventPublisher.Ack>> acks = new LinkedHashMap<>();
+        Map<UUID, Span> spans = new LinkedHashMap<>();
+        List<OutboxStore.OutboxRow> mqRows = new ArrayList<>();
+        List<CommandQueue.OutgoingMessage> messages = new ArrayList<>();
         try {
-            switch (r.category()) {
-                case "command", "reply" -> mq.send(r.topic(), r.payload(), r.headers());
-                case "event" -> kafka.publish(r.topic(), r.key(), r.payload(), r.headers());
-                default -> throw new IllegalArgumentException("Unknown category " + r.category());
+            for (OutboxStore.OutboxRow r : rows) {
+                Span span = tracing.startSpan("publish " + r.topic(), SpanKind.PRODUCER, tracing.extract(r.headers()));
+                spans.put(r.id(), span);
+                try {
+                    var headers = tracing.withSpan(r.headers(), span);
+                    switch (r.category()) {
+                        case "command", "reply" -> {
+                            mqRows.add(r);
+                            messages.add(new CommandQueue.OutgoingMessage(r.topic(), r.payload(), headers));
+                        }
+                        case "event" -> acks.put(r.id(), kafka.publishAsync(r.topic(), r.key(), r.payload(), headers));
+                        default -> throw new IllegalArgumentException("Unknown category " + r.category());
+                    }
+                } catch (Exception e) {
+                    failures.put(r.id(), e);
+                }
             }
-            store.markPublished(r.id());
-        } catch (Exception e) {
-            long backoff = Math.min(maxBackoffMillis, (long)Math.pow(2, Math.max(1, r.attempts() + 1)) * 1000L);
-            store.reschedule(r.id(), backoff, e.toString());
+            sendMq(mqRows, messages, failures);
+            awaitAcks(acks, failures);
+        } finally {
+            spans.forEach((id, span) -> Tracing.end(span, failures.get(id)));
         }
+        return failures;
     }
 
-    private String host() {
+    private void sendMq(List<OutboxStore.OutboxRow> mqRows, List<CommandQueue.OutgoingMessage> messages,
+                        Map<UUID, Exception> failures) {
+        if (mqRows.isEmpty()) {
+            return;
+        }
         try {
-            return java.net.InetAddress.getLoopbackAddress().getHostName();
+            mq.sendAll(messages).forEach((index, e) -> failures.put(mqRows.get(index).id(), e));
         } catch (Exception e) {
-            return "unknown-host";
+            mqRows.forEach(r -> failures.put(r.id(), e));
+        }
+    }
+
+    private void awaitAcks(Map<UUID, CompletableFuture<EventPublisher.Ack>> acks, Map<UUID, Exception> failures) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMillis);
+        for (var entry : acks.entrySet()) {
+            try {
+                entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                failures.put(entry.getKey(), e.getCause() instanceof Exception cause ? cause : e);
+            } catch (TimeoutException e) {
+                failures.put(entry.getKey(), new TimeoutException("No Kafka ack within " + ackTimeoutMillis + "ms"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.put(entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Finalizes a published batch in at most three statements: one for the delivered rows, one for the failures
+     * and one releasing rows held back by an open circuit, which were never sent and so cost no attempt.
+     */
+    private void finalizeBatch(List<OutboxStore.OutboxRow> rows, Map<UUID, Exception> failures) {
+        List<UUID> published = new ArrayList<>(rows.size());
+        List<OutboxStore.Reschedule> failed = new ArrayList<>(failures.size());
+        List<UUID> blocked = new ArrayList<>();
+        for (OutboxStore.OutboxRow r : rows) {
+            Exception e = failures.get(r.id());
+            if (e == null) {
+                published.add(r.id());
+            } else if (e instanceof CircuitOpenException) {
+                blocked.add(r.id());
+            } else {
+                failed.add(new OutboxStore.Reschedule(r.id(), backoffMillis(r), e.toString()));
+                metrics.recordReschedule(e);
+            }
+        }
+        if (!published.isEmpty()) {
+            store.markAllPublished(published);
         }
+        if (!failed.isEmpty()) {
+            store.rescheduleAll(failed);
+        }
+        if (!blocked.isEmpty()) {
+            store.releaseAll(blocked);
+        }
+    }
+
+    /** A claimed row that was not sent because its destination's circuit is open. */
+    private static class CircuitOpenException extends IllegalStateException {
+        CircuitOpenException(String destination) {
+            super("Circuit open for destination " + destination);
+        }
+    }
+
+    private long backoffMillis(OutboxStore.OutboxRow r) {
+        return Math.min(maxBackoffMillis, (long)Math.pow(2, Math.max(1, r.attempts() + 1)) * 1000L);
     }
 }
@@ -0,0 +1,75 @@
+package com.acme.reliable.relay;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.inject.Singleton;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claim and publish timings, batch sizes and delivery counts of the outbox relay, tagged by the path that
+ * published the rows: {@code fast} (right after their commit), {@code sweep} (found by a sweep loop) or
+ * {@code replication} (streamed by the replication engine). The fast-path hit ratio is
+ * {@code outbox.published{path=fast}} over all of {@code outbox.published}.
+ */
+@Singleton
+public class RelayMetrics {
+    public static final String FAST = "fast";
+    public static final String SWEEP = "sweep";
+    public static final String REPLICATION = "replication";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> claimTimers = new HashMap<>();
+    private final Map<String, Timer> publishTimers = new HashMap<>();
+    private final Map<String, DistributionSummary> batchSizes = new HashMap<>();
+    private final Map<String, Counter> published = new HashMap<>();
+
+    public RelayMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (String path : new String[] {FAST, SWEEP, REPLICATION}) {
+            claimTimers.put(path, Timer.builder("outbox.claim")
+                .description("Time to claim a batch of outbox rows")
+                .tag("path", path)
+                .publishPercentileHistogram()
+                .register(registry));
+            publishTimers.put(path, Timer.builder("outbox.publish")
+                .description("Time to publish a claimed batch to the brokers, acks included")
+                .tag("path", path)
+                .publishPercentileHistogram()
+                .register(registry));
+            batchSizes.put(path, DistributionSummary.builder("outbox.batch.size")
+                .description("Rows per published batch")
+                .baseUnit("rows")
+                .tag("path", path)
+                .publishPercentileHistogram()
+                .register(registry));
+            published.put(path, Counter.builder("outbox.published")
+                .description("Outbox rows delivered to a broker")
+                .tag("path", path)
+                .register(registry));
+        }
+    }
+
+    void recordClaim(String path, long nanos) {
+        claimTimers.get(path).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordPublish(String path, long nanos, int rows, int delivered) {
+        publishTimers.get(path).record(nanos, TimeUnit.NANOSECONDS);
+        batchSizes.get(path).record(rows);
+        published.get(path).increment(delivered);
+    }
+
+    void recordReschedule(Exception e) {
+        // Registries cache meters by id, so this is a lookup after the first failure of each class
+        Counter.builder("outbox.reschedules")
+            .description("Outbox rows rescheduled after a failed publish")
+            .tag("exception", e.getClass().getSimpleName())
+            .register(registry)
+            .increment();
+    }
+}
@@ -0,0 +1,107 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.spi.ShardLeaseStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which relay shards this node sweeps. Every heartbeat the node renews its shard leases and
+ * rebalances towards an even share (shards / live nodes): surplus shards are released for newcomers,
+ * and missing ones are taken from the unowned or expired pool. A node that stops heartbeating loses its
+ * shards when their leases run out; one that shuts down cleanly hands them over at once.
+ */
+@Singleton
+public class ShardOwnership {
+    private static final Logger LOG = LoggerFactory.getLogger(ShardOwnership.class);
+
+    private final ShardLeaseStore store;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long heartbeatMillis;
+    private final long leaseMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "relay-shard-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile Set<Integer> owned = Set.of();
+    private volatile long ownedSinceNanos;
+
+    public ShardOwnership(ShardLeaseStore store, RelayConfig relayConfig) {
+        this.store = store;
+        this.enabled = relayConfig.isShardingEnabled();
+        this.nodeId = relayConfig.getNodeId();
+        this.heartbeatMillis = Math.max(1, relayConfig.getShardHeartbeatMillis());
+        this.leaseMillis = heartbeatMillis * 3;
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::rebalance, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The shards this node may sweep. Empty once the leases may have lapsed without being renewed.
+     */
+    public Set<Integer> ownedShards() {
+        if (System.nanoTime() - ownedSinceNanos > TimeUnit.MILLISECONDS.toNanos(leaseMillis)) {
+            return Set.of();
+        }
+        return owned;
+    }
+
+    void rebalance() {
+        try {
+            long started = System.nanoTime();
+            int liveNodes = Math.max(1, store.heartbeat(nodeId, leaseMillis));
+            int target = (store.shardCount() + liveNodes - 1) / liveNodes;
+
+            Set<Integer> held = new HashSet<>(store.renew(nodeId, leaseMillis));
+            if (held.size() > target) {
+                List<Integer> surplus = new ArrayList<>(held).subList(0, held.size() - target);
+                store.release(nodeId, surplus);
+                surplus.forEach(held::remove);
+            } else if (held.size() < target) {
+                held.addAll(store.acquire(nodeId, target - held.size(), leaseMillis));
+            }
+
+            if (!held.equals(owned)) {
+                LOG.info("Relay node {} now owns {} of its target {} shards ({} live nodes)", nodeId, held.size(), target, liveNodes);
+            }
+            owned = Set.copyOf(held);
+            ownedSinceNanos = started;
+        } catch (Exception e) {
+            LOG.warn("Relay shard heartbeat failed; keeping current shards until their leases lapse", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        if (enabled) {
+            try {
+                store.leave(nodeId);
+            } catch (Exception e) {
+                LOG.warn("Failed to release relay shards of {}", nodeId, e);
+            }
+        }
+    }
+}
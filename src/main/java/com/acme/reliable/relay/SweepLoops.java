@@ -0,0 +1,45 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.config.TimeoutConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+
+import java.util.List;
+
+/**
+ * One {@link AdaptiveSweeper} per category group, so a slow or unreachable broker only slows the sweeps
+ * of its own rows. The replication engine publishes without claiming, so it gets no sweepers.
+ */
+@Singleton
+public class SweepLoops {
+    private final List<AdaptiveSweeper> sweepers;
+
+    public SweepLoops(OutboxRelay relay, TimeoutConfig timeoutConfig, RelayConfig relayConfig) {
+        this.sweepers = !relayConfig.isPolling() ? List.of() : OutboxRelay.CATEGORY_GROUPS.stream()
+            .map(group -> new AdaptiveSweeper(relay, group, timeoutConfig, relayConfig))
+            .toList();
+    }
+
+    @PostConstruct
+    void start() {
+        sweepers.forEach(AdaptiveSweeper::start);
+    }
+
+    /**
+     * Wakes every group's sweeper.
+     */
+    public void wake() {
+        sweepers.forEach(AdaptiveSweeper::wake);
+    }
+
+    public List<AdaptiveSweeper> getSweepers() {
+        return sweepers;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweepers.forEach(AdaptiveSweeper::shutdown);
+    }
+}
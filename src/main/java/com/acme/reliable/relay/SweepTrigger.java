@@ -0,0 +1,68 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs out-of-band relay sweeps when outbox work becomes eligible.
+ * Wakeups are rounded up to grace-sized slots and coalesced per slot, so a burst of
+ * notifications costs at most one sweep per grace period instead of one per row.
+ * Each wakeup hands over to the {@link SweepLoops}, which keep sweeping while batches come back full.
+ */
+@Singleton
+public class SweepTrigger {
+    private static final Logger LOG = LoggerFactory.getLogger(SweepTrigger.class);
+
+    private final SweepLoops sweeper;
+    private final long graceMillis;
+    private final Set<Long> pendingSlots = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "outbox-sweep-trigger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SweepTrigger(SweepLoops sweeper, RelayConfig relayConfig) {
+        this.sweeper = sweeper;
+        this.graceMillis = Math.max(1, relayConfig.getNotifyGraceMillis());
+    }
+
+    /**
+     * Request a sweep once work becomes eligible in {@code delayMillis} (plus the grace period).
+     */
+    public void wakeAfter(long delayMillis) {
+        long due = System.currentTimeMillis() + Math.max(0, delayMillis) + graceMillis;
+        long slot = (due + graceMillis - 1) / graceMillis;
+        if (pendingSlots.add(slot)) {
+            long wait = Math.max(0, slot * graceMillis - System.currentTimeMillis());
+            scheduler.schedule(() -> fire(slot), wait, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    int pendingWakeups() {
+        return pendingSlots.size();
+    }
+
+    private void fire(long slot) {
+        pendingSlots.remove(slot);
+        try {
+            sweeper.wake();
+        } catch (Exception e) {
+            LOG.warn("Triggered outbox sweep failed", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -10,7 +10,7 @@ public class CreateUserHandler implements Executor.HandlerRegistry {
 
     @Override
     public String invoke(String name, String payload) {
-        if (!"CreateUser".equals(name)) {
+        if (!handles(name)) {
             throw new IllegalArgumentException("Unknown " + name);
         }
         if (payload.contains("\"failPermanent\"")) {
@@ -21,4 +21,9 @@ public class CreateUserHandler implements Executor.HandlerRegistry {
         }
         return "{\"userId\":\"u-123\"}";
     }
+
+    @Override
+    public boolean handles(String name) {
+        return "CreateUser".equals(name);
+    }
 }
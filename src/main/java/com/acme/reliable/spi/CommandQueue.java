@@ -1,7 +1,29 @@
 package com.acme.reliable.spi;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public interface CommandQueue {
     void send(String queue, String body, Map<String,String> headers);
+
+    /**
+     * Sends a batch of messages, committing as few units of work as the transport allows.
+     * Returns the messages that were not delivered, keyed by their index in {@code messages};
+     * an empty map means the whole batch was delivered.
+     */
+    default Map<Integer, Exception> sendAll(List<OutgoingMessage> messages) {
+        Map<Integer, Exception> failures = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            var m = messages.get(i);
+            try {
+                send(m.queue(), m.body(), m.headers());
+            } catch (Exception e) {
+                failures.put(i, e);
+            }
+        }
+        return failures;
+    }
+
+    record OutgoingMessage(String queue, String body, Map<String,String> headers) {}
 }
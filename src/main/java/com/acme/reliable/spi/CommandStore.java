@@ -1,18 +1,21 @@
 package com.acme.reliable.spi;
 
-import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface CommandStore {
     UUID savePending(String name, String idem, String businessKey, String payload, String replyJson);
+
+    /**
+     * Inserts a PENDING command unless one with the same idempotency key exists, in one round-trip.
+     * Returns the new command, or the existing one with {@code created == false}.
+     */
+    Accepted savePendingIfAbsent(String name, String idem, String businessKey, String payload, String replyJson);
     Optional<Record> find(UUID id);
-    void markRunning(UUID id, Instant leaseUntil);
-    void markSucceeded(UUID id);
     void markFailed(UUID id, String error);
     void bumpRetry(UUID id, String error);
     void markTimedOut(UUID id, String reason);
-    boolean existsByIdempotencyKey(String k);
 
+    record Accepted(UUID id, String status, boolean created) {}
     record Record(UUID id, String name, String key, String payload, String status, String reply) {}
 }
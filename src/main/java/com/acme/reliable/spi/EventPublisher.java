@@ -1,7 +1,23 @@
 package com.acme.reliable.spi;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface EventPublisher {
     void publish(String topic, String key, String value, Map<String,String> headers);
+
+    /**
+     * Sends the record without blocking; the future completes once the broker acknowledged it
+     * and fails if it was not delivered. Implementations that cannot pipeline fall back to {@link #publish}.
+     */
+    default CompletableFuture<Ack> publishAsync(String topic, String key, String value, Map<String,String> headers) {
+        try {
+            publish(topic, key, value, headers);
+            return CompletableFuture.completedFuture(new Ack(topic, -1, -1L));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    record Ack(String topic, int partition, long offset) {}
 }
@@ -0,0 +1,21 @@
+package com.acme.reliable.spi;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Fused statements for the command executor's hot path, each spanning the inbox, command and outbox tables.
+ */
+public interface ExecutionStore {
+    /**
+     * Records the message in the inbox and marks the command RUNNING in one statement.
+     * Returns false, leaving the command untouched, when the message was already processed by {@code handler}.
+     */
+    boolean begin(String messageId, String handler, UUID commandId, Instant leaseUntil);
+
+    /**
+     * Marks the command SUCCEEDED and inserts the outbox rows in one statement, returning their ids in order.
+     */
+    List<UUID> complete(UUID commandId, List<OutboxStore.OutboxRow> rows);
+}
@@ -0,0 +1,10 @@
+package com.acme.reliable.spi;
+
+import java.util.UUID;
+
+/**
+ * Source of primary keys for command, outbox and DLQ rows.
+ */
+public interface IdGenerator {
+    UUID newId();
+}
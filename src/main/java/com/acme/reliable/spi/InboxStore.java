@@ -1,5 +0,0 @@
-package com.acme.reliable.spi;
-
-public interface InboxStore {
-    boolean markIfAbsent(String messageId, String handler);
-}
@@ -1,17 +1,67 @@
 package com.acme.reliable.spi;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface OutboxStore {
     UUID addReturningId(OutboxRow row);
-    Optional<OutboxRow> claimOne(UUID id);
-    List<OutboxRow> claim(int max, String claimer);
-    void markPublished(UUID id);
-    void reschedule(UUID id, long backoffMillis, String error);
 
+    /**
+     * Leases rows the caller still holds in memory, those that are still NEW, in one statement.
+     * Only the ids of the leased rows are read back, so the caller publishes its own copies.
+     */
+    Set<UUID> claimAllIfNew(Collection<UUID> ids, String claimer);
+
+    default List<OutboxRow> claim(int max, String claimer) {
+        return claim(max, claimer, ClaimScope.ALL);
+    }
+
+    /** Claims like {@link #claim(int, String)}, restricted to rows of the given relay shards. */
+    default List<OutboxRow> claim(int max, String claimer, Collection<Integer> shards) {
+        return claim(max, claimer, new ClaimScope(shards, null, Set.of()));
+    }
+
+    /**
+     * Leases up to {@code max} due NEW rows within {@code scope}, oldest first per priority level,
+     * interleaving the levels by weight so lower priorities keep a share of every batch. The rows are
+     * returned by priority, then oldest first, so rows with the same key keep their creation order.
+     */
+    List<OutboxRow> claim(int max, String claimer, ClaimScope scope);
+
+    /**
+     * Returns up to {@code max} rows whose claim lease expired back to NEW and reports how many were recovered.
+     */
+    int reapExpiredClaims(int max);
+
+    /** Marks every given row published in a single statement. */
+    void markAllPublished(Collection<UUID> ids);
+
+    /** Reschedules every given row, each with its own backoff, in a single statement. */
+    void rescheduleAll(List<Reschedule> reschedules);
+
+    /**
+     * Returns claimed rows that were never sent to NEW as they were: no attempt is counted and next_at is kept.
+     */
+    void releaseAll(Collection<UUID> ids);
+
+    /**
+     * Gives up on rows that could not be delivered: each keeps its error in last_error and is never due again
+     * (next_at is infinity), so no relay publishes it until an operator resets next_at.
+     */
+    void parkAll(Map<UUID, String> errors);
+
+    /**
+     * Rows that are due but not yet claimed, per category, with the age of the oldest one.
+     * Categories without due rows are left out.
+     */
+    List<Backlog> backlog();
+
+    /**
+     * An outbox row. Lower {@code priority} values are claimed first, within a weighted fair share per level.
+     */
     record OutboxRow(
         UUID id,
         String category,
@@ -20,6 +70,39 @@ public interface OutboxStore {
         String type,
         String payload,
         Map<String,String> headers,
-        int attempts
-    ) {}
+        int attempts,
+        int priority
+    ) {
+        /** Replies: a caller may be waiting on them. */
+        public static final int PRIORITY_HIGH = 0;
+        public static final int PRIORITY_NORMAL = 1;
+        /** Events: only throughput matters. */
+        public static final int PRIORITY_LOW = 2;
+        public static final int PRIORITY_LEVELS = 3;
+
+        public OutboxRow(UUID id, String category, String topic, String key, String type, String payload,
+                         Map<String,String> headers, int attempts) {
+            this(id, category, topic, key, type, payload, headers, attempts, priorityOf(category));
+        }
+
+        /** Priority follows category: replies high, commands normal, events low. */
+        public static int priorityOf(String category) {
+            return switch (category) {
+                case "reply" -> PRIORITY_HIGH;
+                case "event" -> PRIORITY_LOW;
+                default -> PRIORITY_NORMAL;
+            };
+        }
+    }
+
+    record Reschedule(UUID id, long backoffMillis, String error) {}
+
+    record Backlog(String category, long rows, long oldestAgeMillis) {}
+
+    /**
+     * Narrows a claim. Null shards or categories mean all of them; rows addressed to a paused topic are skipped.
+     */
+    record ClaimScope(Collection<Integer> shards, Collection<String> categories, Collection<String> pausedTopics) {
+        public static final ClaimScope ALL = new ClaimScope(null, null, Set.of());
+    }
 }
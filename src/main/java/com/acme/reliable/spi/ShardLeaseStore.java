@@ -0,0 +1,25 @@
+package com.acme.reliable.spi;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Leases on relay shards, held by relay nodes that keep heartbeating.
+ */
+public interface ShardLeaseStore {
+    /** Records a heartbeat for {@code node}, forgets nodes silent for longer than {@code ttlMillis}, and returns the live node count. */
+    int heartbeat(String node, long ttlMillis);
+
+    int shardCount();
+
+    /** Extends every lease {@code node} holds and returns those shards. */
+    Set<Integer> renew(String node, long leaseMillis);
+
+    /** Takes up to {@code max} shards that are unowned or whose lease expired. */
+    Set<Integer> acquire(String node, int max, long leaseMillis);
+
+    void release(String node, Collection<Integer> shards);
+
+    /** Releases every lease of {@code node} and forgets the node, so others can take over at once. */
+    void leave(String node);
+}
@@ -3,6 +3,7 @@ package com.acme.reliable.web;
 import com.acme.reliable.config.MessagingConfig;
 import com.acme.reliable.config.TimeoutConfig;
 import com.acme.reliable.core.CommandBus;
+import com.acme.reliable.core.DuplicateCommandException;
 import com.acme.reliable.core.ResponseRegistry;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.Body;
@@ -36,8 +37,17 @@ public class CommandController {
 
         String effectiveReplyQueue = (replyTo != null && !replyTo.isBlank()) ? replyTo : defaultReplyQueue;
 
-        var cmdId = bus.accept(name, idem, businessKey(payload), payload,
-                java.util.Map.of("mode", "mq", "replyTo", effectiveReplyQueue));
+        java.util.UUID cmdId;
+        try {
+            cmdId = bus.accept(name, idem, businessKey(payload), payload,
+                    java.util.Map.of("mode", "mq", "replyTo", effectiveReplyQueue));
+        } catch (DuplicateCommandException e) {
+            // Replay of an already accepted command - answer with the original command id
+            return HttpResponse.accepted()
+                    .header("X-Command-Id", e.getCommandId().toString())
+                    .header("X-Correlation-Id", e.getCommandId().toString())
+                    .body("{\"message\":\"Duplicate idempotency key\",\"status\":\"" + e.getStatus() + "\"}");
+        }
 
         // If configured for full async (syncWait = 0), return immediately
         if (timeoutConfig.isAsync()) {
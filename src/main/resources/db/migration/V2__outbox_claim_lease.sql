@@ -0,0 +1,6 @@
+-- Claim leases: the relay claims rows in a short transaction and publishes outside of it.
+-- A claim whose lease has expired (crashed or stalled relay) becomes eligible again.
+
+alter table outbox add column claimed_until timestamptz;
+
+create index outbox_claim_lease_idx on outbox (claimed_until) where status = 'CLAIMED';
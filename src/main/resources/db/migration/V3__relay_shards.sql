@@ -0,0 +1,20 @@
+-- Relay shard ownership: every outbox row belongs to one of 64 shards derived from its key,
+-- and each relay node sweeps only the shards it holds a lease on.
+
+alter table outbox add column shard smallint not null
+  generated always as ((hashtext(key) & 2147483647) % 64) stored;
+
+create index outbox_shard_dispatch_idx on outbox (shard, created_at) where status = 'NEW';
+
+create table relay_node (
+  node_id text primary key,
+  heartbeat_at timestamptz not null default now()
+);
+
+create table relay_shard (
+  shard smallint primary key,
+  owner text,
+  lease_until timestamptz
+);
+
+insert into relay_shard(shard) select generate_series(0, 63);
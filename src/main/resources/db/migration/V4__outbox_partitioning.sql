@@ -0,0 +1,54 @@
+-- Range-partition the outbox by created_at (one partition per day) so retention drops whole
+-- partitions instead of deleting rows. There is no default partition: DETACH PARTITION ... CONCURRENTLY,
+-- which OutboxPartitionManager uses so that dropping an expired day does not lock the whole outbox, is not
+-- allowed while one exists. An insert fails unless its day has a partition; existing rows get one per day
+-- here, and OutboxPartitionManager keeps today and outbox.partitions-ahead days ready.
+--
+-- The primary key must include the partition key, so it is (id, created_at) and the database no longer
+-- rejects a repeated id on its own. Ids come from UuidV7Generator: strictly increasing within a process
+-- and carrying 62 random bits, so ids from different nodes collide only by chance, negligibly often.
+
+alter table outbox rename to outbox_unpartitioned;
+
+create table outbox (
+  id uuid not null,
+  category text not null,
+  topic text not null,
+  key text not null,
+  type text not null,
+  payload jsonb not null,
+  headers jsonb not null default '{}'::jsonb,
+  status text not null default 'NEW',
+  attempts int not null default 0,
+  next_at timestamptz,
+  claimed_by text,
+  claimed_until timestamptz,
+  created_at timestamptz not null default now(),
+  published_at timestamptz,
+  last_error text,
+  shard smallint not null generated always as ((hashtext(key) & 2147483647) % 64) stored,
+  primary key (id, created_at)
+) partition by range (created_at);
+
+do $$
+declare
+  d date;
+begin
+  for d in select distinct created_at::date from outbox_unpartitioned
+           union select generate_series(current_date, current_date + 3, interval '1 day')::date loop
+    execute format('create table %I partition of outbox for values from (%L) to (%L)',
+                   'outbox_p' || to_char(d, 'YYYYMMDD'), d, d + 1);
+  end loop;
+end $$;
+
+insert into outbox (id, category, topic, key, type, payload, headers, status, attempts, next_at,
+                    claimed_by, claimed_until, created_at, published_at, last_error)
+select id, category, topic, key, type, payload, headers, status, attempts, next_at,
+       claimed_by, claimed_until, created_at, published_at, last_error
+from outbox_unpartitioned;
+
+drop table outbox_unpartitioned;
+
+create index outbox_dispatch_idx on outbox (status, coalesce(next_at, 'epoch'::timestamptz), created_at);
+create index outbox_claim_lease_idx on outbox (claimed_until) where status = 'CLAIMED';
+create index outbox_shard_dispatch_idx on outbox (shard, created_at) where status = 'NEW';
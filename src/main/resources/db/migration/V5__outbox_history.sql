@@ -0,0 +1,29 @@
+-- Append-only record of published outbox rows, written when outbox.publish-mode=DELETE removes
+-- rows from the outbox as they are finalized. Only metadata is kept; payloads are not copied.
+-- Every published row leaves one here, so the table is partitioned by day on published_at, like the
+-- outbox, and OutboxPartitionManager drops days past outbox.history-retention. As with the outbox there
+-- is no default partition.
+
+create table outbox_history (
+  id uuid not null,
+  category text not null,
+  topic text not null,
+  key text not null,
+  type text not null,
+  attempts int not null,
+  created_at timestamptz not null,
+  published_at timestamptz not null default now()
+) partition by range (published_at);
+
+do $$
+declare
+  d date;
+begin
+  for d in select generate_series(current_date, current_date + 3, interval '1 day')::date loop
+    execute format('create table %I partition of outbox_history for values from (%L) to (%L)',
+                   'outbox_history_p' || to_char(d, 'YYYYMMDD'), d, d + 1);
+  end loop;
+end $$;
+
+create index outbox_history_id_idx on outbox_history (id);
+create index outbox_history_published_idx on outbox_history (published_at);
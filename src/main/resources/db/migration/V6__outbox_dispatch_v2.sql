@@ -0,0 +1,40 @@
+-- Compact outbox schema v2:
+-- * status and category become enums (4 bytes each instead of a text value per row)
+-- * next_at is always set (eligible-from time), so the claim predicate is a plain next_at <= now()
+-- * the dispatch indexes only cover NEW rows and carry next_at, so published rows never enter them
+-- * partitions leave free space per page so claim/finalize updates can stay on the same page
+
+create type outbox_status as enum ('NEW','CLAIMED','PUBLISHED');
+create type outbox_category as enum ('command','reply','event');
+
+-- Partial index predicates compare status with text and would not survive the type change
+drop index outbox_dispatch_idx;
+drop index outbox_claim_lease_idx;
+drop index outbox_shard_dispatch_idx;
+
+update outbox set next_at = created_at where next_at is null;
+
+alter table outbox
+  alter column status drop default,
+  alter column status type outbox_status using status::outbox_status,
+  alter column status set default 'NEW',
+  alter column category type outbox_category using category::outbox_category,
+  alter column next_at set default now(),
+  alter column next_at set not null;
+
+alter table outbox_history
+  alter column category type outbox_category using category::outbox_category;
+
+create index outbox_dispatch_idx on outbox (created_at) include (next_at) where status = 'NEW';
+create index outbox_claim_lease_idx on outbox (claimed_until) where status = 'CLAIMED';
+create index outbox_shard_dispatch_idx on outbox (shard, created_at) include (next_at) where status = 'NEW';
+
+-- Storage parameters are per partition; OutboxPartitionManager applies the same fillfactor to new ones
+do $$
+declare
+  p regclass;
+begin
+  for p in select inhrelid::regclass from pg_inherits where inhparent = 'outbox'::regclass loop
+    execute format('alter table %s set (fillfactor = 80)', p);
+  end loop;
+end $$;
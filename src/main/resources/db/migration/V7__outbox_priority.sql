@@ -0,0 +1,16 @@
+-- Priority per outbox row: 0 = replies (a caller may be waiting), 1 = commands, 2 = events.
+-- The claim takes a weighted share of each level. A level is exactly one category (priority follows
+-- category), so each level reads one category range of the dispatch indexes, and a sweep limited to one
+-- category group scans only its own categories' due rows.
+
+alter table outbox add column priority smallint not null default 1;
+
+-- Only rows still waiting to be sent need the right priority
+update outbox set priority = case category when 'reply' then 0 when 'event' then 2 else 1 end
+where status <> 'PUBLISHED' and category <> 'command';
+
+drop index outbox_dispatch_idx;
+drop index outbox_shard_dispatch_idx;
+
+create index outbox_dispatch_idx on outbox (category, created_at) include (next_at) where status = 'NEW';
+create index outbox_shard_dispatch_idx on outbox (shard, category, created_at) include (next_at) where status = 'NEW';
@@ -0,0 +1,6 @@
+-- Publication streamed by the replication relay engine (relay.engine=REPLICATION).
+-- Only inserts are published, through the partitioned root, so the tailer sees a single outbox relation
+-- and the relay's own updates never reach the WAL decoder. Nothing is decoded until a slot streams from it,
+-- so the publication costs nothing under the default polling engine.
+
+create publication outbox_pub for table outbox with (publish = 'insert', publish_via_partition_root = true);
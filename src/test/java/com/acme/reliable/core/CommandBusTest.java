@@ -27,7 +27,7 @@ class CommandBusTest {
         outboxStore = mock(OutboxStore.class);
         outbox = mock(Outbox.class);
         fastPath = mock(FastPathPublisher.class);
-        commandBus = new CommandBus(commandStore, outboxStore, outbox, fastPath);
+        commandBus = new CommandBus(commandStore, outboxStore, outbox, fastPath, Tracing.noop());
     }
 
     @Test
@@ -36,8 +36,8 @@ class CommandBusTest {
         UUID outboxId = UUID.randomUUID();
         OutboxStore.OutboxRow mockRow = mock(OutboxStore.OutboxRow.class);
 
-        when(commandStore.existsByIdempotencyKey("test-idem")).thenReturn(false);
-        when(commandStore.savePending(any(), any(), any(), any(), any())).thenReturn(commandId);
+        when(commandStore.savePendingIfAbsent(any(), any(), any(), any(), any()))
+            .thenReturn(new CommandStore.Accepted(commandId, "PENDING", true));
         when(outbox.rowCommandRequested(any(), any(), any(), any(), any())).thenReturn(mockRow);
         when(outboxStore.addReturningId(any())).thenReturn(outboxId);
 
@@ -51,8 +51,7 @@ class CommandBusTest {
 
         assertEquals(commandId, result);
 
-        verify(commandStore).existsByIdempotencyKey("test-idem");
-        verify(commandStore).savePending(
+        verify(commandStore).savePendingIfAbsent(
             eq("TestCommand"),
             eq("test-idem"),
             eq("test-key"),
@@ -61,14 +60,16 @@ class CommandBusTest {
         );
         verify(outbox).rowCommandRequested(eq("TestCommand"), eq(commandId), eq("test-key"), eq("{\"data\":\"test\"}"), any());
         verify(outboxStore).addReturningId(mockRow);
-        verify(fastPath).registerAfterCommit(outboxId);
+        verify(fastPath).registerAfterCommit(mockRow);
     }
 
     @Test
     void testAcceptCommandDuplicateIdempotencyKey() {
-        when(commandStore.existsByIdempotencyKey("duplicate-key")).thenReturn(true);
+        UUID existingId = UUID.randomUUID();
+        when(commandStore.savePendingIfAbsent(any(), eq("duplicate-key"), any(), any(), any()))
+            .thenReturn(new CommandStore.Accepted(existingId, "SUCCEEDED", false));
 
-        assertThrows(IllegalStateException.class, () -> {
+        var e = assertThrows(DuplicateCommandException.class, () -> {
             commandBus.accept(
                 "TestCommand",
                 "duplicate-key",
@@ -78,8 +79,8 @@ class CommandBusTest {
             );
         });
 
-        verify(commandStore).existsByIdempotencyKey("duplicate-key");
-        verify(commandStore, never()).savePending(any(), any(), any(), any(), any());
+        assertEquals(existingId, e.getCommandId());
+        assertEquals("SUCCEEDED", e.getStatus());
         verify(outboxStore, never()).addReturningId(any());
         verify(fastPath, never()).registerAfterCommit(any());
     }
@@ -89,8 +90,8 @@ class CommandBusTest {
         UUID commandId = UUID.randomUUID();
         UUID outboxId = UUID.randomUUID();
 
-        when(commandStore.existsByIdempotencyKey(any())).thenReturn(false);
-        when(commandStore.savePending(any(), any(), any(), any(), any())).thenReturn(commandId);
+        when(commandStore.savePendingIfAbsent(any(), any(), any(), any(), any()))
+            .thenReturn(new CommandStore.Accepted(commandId, "PENDING", true));
         when(outboxStore.addReturningId(any())).thenReturn(outboxId);
 
         ArgumentCaptor<OutboxStore.OutboxRow> outboxCaptor = ArgumentCaptor.forClass(OutboxStore.OutboxRow.class);
@@ -3,11 +3,14 @@ package com.acme.reliable.core;
 import com.acme.reliable.config.MessagingConfig;
 import com.acme.reliable.config.TimeoutConfig;
 import com.acme.reliable.spi.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -17,7 +20,7 @@ import static org.mockito.Mockito.*;
 
 class ExecutorTest {
 
-    private InboxStore inboxStore;
+    private ExecutionStore executionStore;
     private CommandStore commandStore;
     private OutboxStore outboxStore;
     private Outbox outbox;
@@ -26,11 +29,12 @@ class ExecutorTest {
     private FastPathPublisher fastPath;
     private TimeoutConfig timeoutConfig;
     private MessagingConfig messagingConfig;
+    private MeterRegistry meterRegistry;
     private Executor executor;
 
     @BeforeEach
     void setUp() {
-        inboxStore = mock(InboxStore.class);
+        executionStore = mock(ExecutionStore.class);
         commandStore = mock(CommandStore.class);
         outboxStore = mock(OutboxStore.class);
         outbox = mock(Outbox.class);
@@ -39,14 +43,16 @@ class ExecutorTest {
         fastPath = mock(FastPathPublisher.class);
         timeoutConfig = mock(TimeoutConfig.class);
         messagingConfig = mock(MessagingConfig.class);
+        meterRegistry = new SimpleMeterRegistry();
 
         when(timeoutConfig.getCommandLeaseSeconds()).thenReturn(300L);
+        when(registry.handles("TestCommand")).thenReturn(true);
 
         MessagingConfig.TopicNaming topicNaming = mock(MessagingConfig.TopicNaming.class);
         when(messagingConfig.getTopicNaming()).thenReturn(topicNaming);
         when(topicNaming.buildEventTopic(any())).thenAnswer(invocation -> "events." + invocation.getArgument(0));
 
-        executor = new Executor(inboxStore, commandStore, outboxStore, outbox, dlqStore, registry, fastPath, timeoutConfig, messagingConfig);
+        executor = new Executor(executionStore, commandStore, outboxStore, outbox, dlqStore, registry, fastPath, timeoutConfig, messagingConfig, meterRegistry);
     }
 
     private Envelope createEnvelope(String name, String payload) {
@@ -70,36 +76,38 @@ class ExecutorTest {
         OutboxStore.OutboxRow mockReply = mock(OutboxStore.OutboxRow.class);
         OutboxStore.OutboxRow mockEvent = mock(OutboxStore.OutboxRow.class);
 
-        when(inboxStore.markIfAbsent(env.messageId().toString(), "CommandExecutor")).thenReturn(true);
+        when(executionStore.begin(eq(env.messageId().toString()), eq("CommandExecutor"), eq(env.commandId()), any(Instant.class))).thenReturn(true);
         when(registry.invoke("TestCommand", "{\"data\":\"test\"}")).thenReturn("{\"result\":\"success\"}");
         when(outbox.rowMqReply(any(), eq("CommandCompleted"), eq("{\"result\":\"success\"}"))).thenReturn(mockReply);
         when(outbox.rowKafkaEvent(any(), any(), eq("CommandCompleted"), any())).thenReturn(mockEvent);
-        when(outboxStore.addReturningId(any())).thenReturn(UUID.randomUUID());
+        when(executionStore.complete(any(), any())).thenReturn(List.of(UUID.randomUUID(), UUID.randomUUID()));
 
         executor.process(env);
 
-        verify(inboxStore).markIfAbsent(env.messageId().toString(), "CommandExecutor");
-        verify(commandStore).markRunning(eq(env.commandId()), any(Instant.class));
+        verify(executionStore).begin(eq(env.messageId().toString()), eq("CommandExecutor"), eq(env.commandId()), any(Instant.class));
         verify(registry).invoke("TestCommand", "{\"data\":\"test\"}");
-        verify(commandStore).markSucceeded(env.commandId());
+        verify(executionStore).complete(env.commandId(), List.of(mockReply, mockEvent));
 
         // Verify MQ reply and Kafka event were created
         verify(outbox).rowMqReply(env, "CommandCompleted", "{\"result\":\"success\"}");
         verify(outbox).rowKafkaEvent(eq("events.TestCommand"), eq("test-key"), eq("CommandCompleted"), eq("{\"aggregateKey\":\"test-key\",\"version\":1}"));
-        verify(outboxStore, times(2)).addReturningId(any(OutboxStore.OutboxRow.class));
+        verify(outboxStore, never()).addReturningId(any());
+        verify(fastPath).registerAfterCommit(mockReply);
+        verify(fastPath).registerAfterCommit(mockEvent);
+        assertEquals(1, meterRegistry.get("command.process").tags("command", "TestCommand", "outcome", "completed").timer().count());
     }
 
     @Test
     void testProcessDuplicateMessage() {
         Envelope env = createEnvelope("TestCommand", "{}");
 
-        when(inboxStore.markIfAbsent(env.messageId().toString(), "CommandExecutor")).thenReturn(false);
+        when(executionStore.begin(any(), any(), any(), any())).thenReturn(false);
 
         executor.process(env);
 
-        verify(inboxStore).markIfAbsent(env.messageId().toString(), "CommandExecutor");
-        verify(commandStore, never()).markRunning(any(), any());
         verify(registry, never()).invoke(any(), any());
+        verify(executionStore, never()).complete(any(), any());
+        assertEquals(1, meterRegistry.get("command.process").tags("command", "TestCommand", "outcome", "duplicate").timer().count());
     }
 
     @Test
@@ -108,7 +116,7 @@ class ExecutorTest {
         OutboxStore.OutboxRow mockReply = mock(OutboxStore.OutboxRow.class);
         OutboxStore.OutboxRow mockEvent = mock(OutboxStore.OutboxRow.class);
 
-        when(inboxStore.markIfAbsent(any(), any())).thenReturn(true);
+        when(executionStore.begin(any(), any(), any(), any())).thenReturn(true);
         when(registry.invoke(any(), any())).thenThrow(new PermanentException("Test permanent error"));
         when(outbox.rowMqReply(any(), eq("CommandFailed"), any())).thenReturn(mockReply);
         when(outbox.rowKafkaEvent(any(), any(), eq("CommandFailed"), any())).thenReturn(mockEvent);
@@ -117,7 +125,7 @@ class ExecutorTest {
         // Permanent failures should NOT throw - they should commit the failure state
         executor.process(env);
 
-        verify(commandStore).markRunning(eq(env.commandId()), any(Instant.class));
+        verify(executionStore).begin(any(), any(), eq(env.commandId()), any(Instant.class));
         verify(commandStore).markFailed(env.commandId(), "Test permanent error");
         verify(dlqStore).park(
             eq(env.commandId()),
@@ -141,31 +149,45 @@ class ExecutorTest {
     void testProcessTransientFailure() {
         Envelope env = createEnvelope("TestCommand", "{}");
 
-        when(inboxStore.markIfAbsent(any(), any())).thenReturn(true);
+        when(executionStore.begin(any(), any(), any(), any())).thenReturn(true);
         when(registry.invoke(any(), any())).thenThrow(new TransientException("Temporary failure"));
 
         assertThrows(TransientException.class, () -> {
             executor.process(env);
         });
 
-        verify(commandStore).markRunning(eq(env.commandId()), any(Instant.class));
+        verify(executionStore).begin(any(), any(), eq(env.commandId()), any(Instant.class));
         verify(commandStore).bumpRetry(env.commandId(), "Temporary failure");
         verify(commandStore, never()).markFailed(any(), any());
         verify(dlqStore, never()).park(any(), any(), any(), any(), any(), any(), any(), anyInt(), any());
+        assertEquals(1, meterRegistry.get("command.process").tags("command", "TestCommand", "outcome", "retry").timer().count());
+    }
+
+    @Test
+    void testUnknownCommandNameIsNotATagValue() {
+        Envelope env = createEnvelope("NoSuchCommand-" + UUID.randomUUID(), "{}");
+
+        when(executionStore.begin(any(), any(), any(), any())).thenReturn(true);
+        when(registry.invoke(any(), any())).thenThrow(new IllegalArgumentException("Unknown command"));
+
+        assertThrows(IllegalArgumentException.class, () -> executor.process(env));
+
+        assertEquals(1, meterRegistry.get("command.process").tags("command", "unknown", "outcome", "error").timer().count());
+        assertEquals(1, meterRegistry.find("command.process").timers().size());
     }
 
     @Test
     void testProcessRetryableBusinessException() {
         Envelope env = createEnvelope("TestCommand", "{}");
 
-        when(inboxStore.markIfAbsent(any(), any())).thenReturn(true);
+        when(executionStore.begin(any(), any(), any(), any())).thenReturn(true);
         when(registry.invoke(any(), any())).thenThrow(new RetryableBusinessException("Business retry"));
 
         assertThrows(RetryableBusinessException.class, () -> {
             executor.process(env);
         });
 
-        verify(commandStore).markRunning(eq(env.commandId()), any(Instant.class));
+        verify(executionStore).begin(any(), any(), eq(env.commandId()), any(Instant.class));
         verify(commandStore).bumpRetry(env.commandId(), "Business retry");
         verify(commandStore, never()).markFailed(any(), any());
     }
@@ -196,21 +218,22 @@ class ExecutorTest {
             0
         );
 
-        when(inboxStore.markIfAbsent(any(), any())).thenReturn(true);
+        when(executionStore.begin(any(), any(), any(), any())).thenReturn(true);
         when(registry.invoke(any(), any())).thenReturn("{\"userId\":\"123\"}");
         when(outbox.rowMqReply(any(), eq("CommandCompleted"), eq("{\"userId\":\"123\"}"))).thenReturn(expectedReply);
         when(outbox.rowKafkaEvent(any(), any(), eq("CommandCompleted"), any())).thenReturn(expectedEvent);
-        when(outboxStore.addReturningId(any())).thenReturn(UUID.randomUUID());
+        when(executionStore.complete(any(), any())).thenReturn(List.of(UUID.randomUUID(), UUID.randomUUID()));
 
-        ArgumentCaptor<OutboxStore.OutboxRow> captor = ArgumentCaptor.forClass(OutboxStore.OutboxRow.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OutboxStore.OutboxRow>> captor = ArgumentCaptor.forClass(List.class);
 
         executor.process(env);
 
-        verify(outboxStore, times(2)).addReturningId(captor.capture());
+        verify(executionStore).complete(eq(env.commandId()), captor.capture());
 
         // First should be reply, second should be event
-        OutboxStore.OutboxRow reply = captor.getAllValues().get(0);
-        OutboxStore.OutboxRow event = captor.getAllValues().get(1);
+        OutboxStore.OutboxRow reply = captor.getValue().get(0);
+        OutboxStore.OutboxRow event = captor.getValue().get(1);
 
         assertEquals("reply", reply.category());
         assertEquals("TEST.REPLY.Q", reply.topic());
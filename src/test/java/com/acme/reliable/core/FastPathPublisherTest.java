@@ -1,6 +1,7 @@
 package com.acme.reliable.core;
 
-import com.acme.reliable.relay.OutboxRelay;
+import com.acme.reliable.relay.FastPathDispatcher;
+import com.acme.reliable.spi.OutboxStore;
 import io.micronaut.transaction.TransactionOperations;
 import io.micronaut.transaction.TransactionStatus;
 import io.micronaut.transaction.support.TransactionSynchronization;
@@ -9,6 +10,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,71 +21,114 @@ class FastPathPublisherTest {
 
     private TransactionOperations<Connection> transactionOps;
     private TransactionStatus<Connection> transactionStatus;
-    private OutboxRelay relay;
+    private FastPathDispatcher dispatcher;
     private FastPathPublisher fastPath;
 
     @BeforeEach
     void setUp() {
         transactionOps = mock(TransactionOperations.class);
         transactionStatus = mock(TransactionStatus.class);
-        relay = mock(OutboxRelay.class);
-        fastPath = new FastPathPublisher(transactionOps, relay);
+        when(transactionStatus.getConnection()).thenReturn(mock(Connection.class));
+        dispatcher = mock(FastPathDispatcher.class);
+        fastPath = new FastPathPublisher(transactionOps, dispatcher);
+    }
+
+    private static OutboxStore.OutboxRow row() {
+        return new OutboxStore.OutboxRow(UUID.randomUUID(), "event", "events.Test", "k", "T", "{}", Map.of(), 0);
     }
 
     @Test
     void testRegisterAfterCommitRegistersSync() {
-        UUID outboxId = UUID.randomUUID();
+        OutboxStore.OutboxRow row = row();
         when(transactionOps.findTransactionStatus()).thenReturn((Optional) Optional.of(transactionStatus));
 
-        fastPath.registerAfterCommit(outboxId);
+        fastPath.registerAfterCommit(row);
 
         verify(transactionStatus).registerSynchronization(any(TransactionSynchronization.class));
     }
 
     @Test
-    void testAfterCommitPublishes() {
-        UUID outboxId = UUID.randomUUID();
+    void testAfterCommitSubmitsToDispatcher() {
+        OutboxStore.OutboxRow row = row();
         when(transactionOps.findTransactionStatus()).thenReturn((Optional) Optional.of(transactionStatus));
         ArgumentCaptor<TransactionSynchronization> captor = ArgumentCaptor.forClass(TransactionSynchronization.class);
 
-        fastPath.registerAfterCommit(outboxId);
+        fastPath.registerAfterCommit(row);
 
         verify(transactionStatus).registerSynchronization(captor.capture());
 
         TransactionSynchronization sync = captor.getValue();
         sync.afterCommit();
 
-        verify(relay).publishNow(outboxId);
+        verify(dispatcher).submit(List.of(row));
+    }
+
+    @Test
+    void testNoOpWhenNoTransactionActive() {
+        OutboxStore.OutboxRow row = row();
+        when(transactionOps.findTransactionStatus()).thenReturn(Optional.empty());
+
+        fastPath.registerAfterCommit(row);
+
+        verify(transactionStatus, never()).registerSynchronization(any());
+        verifyNoInteractions(dispatcher);
     }
 
     @Test
-    void testAfterCommitSwallowsExceptions() {
-        UUID outboxId = UUID.randomUUID();
+    void testRowsOfOneTransactionShareOneBatch() {
+        OutboxStore.OutboxRow reply = row();
+        OutboxStore.OutboxRow event = row();
         when(transactionOps.findTransactionStatus()).thenReturn((Optional) Optional.of(transactionStatus));
         ArgumentCaptor<TransactionSynchronization> captor = ArgumentCaptor.forClass(TransactionSynchronization.class);
 
-        doThrow(new RuntimeException("Network error")).when(relay).publishNow(any());
+        fastPath.registerAfterCommit(reply);
+        fastPath.registerAfterCommit(event);
 
-        fastPath.registerAfterCommit(outboxId);
+        verify(transactionStatus, times(1)).registerSynchronization(captor.capture());
+        captor.getValue().afterCommit();
+        captor.getValue().afterCompletion(TransactionSynchronization.Status.COMMITTED);
 
-        verify(transactionStatus).registerSynchronization(captor.capture());
+        verify(dispatcher).submit(List.of(reply, event));
+    }
 
-        TransactionSynchronization sync = captor.getValue();
+    @Test
+    void testRollbackDiscardsBatch() {
+        when(transactionOps.findTransactionStatus()).thenReturn((Optional) Optional.of(transactionStatus));
+        ArgumentCaptor<TransactionSynchronization> captor = ArgumentCaptor.forClass(TransactionSynchronization.class);
 
-        // Should not throw
-        sync.afterCommit();
+        fastPath.registerAfterCommit(row());
+        verify(transactionStatus).registerSynchronization(captor.capture());
+        captor.getValue().afterCompletion(TransactionSynchronization.Status.ROLLED_BACK);
 
-        verify(relay).publishNow(outboxId);
+        // The next transaction starts a fresh batch
+        fastPath.registerAfterCommit(row());
+        verify(transactionStatus, times(2)).registerSynchronization(any());
+        verifyNoInteractions(dispatcher);
     }
 
     @Test
-    void testNoOpWhenNoTransactionActive() {
-        UUID outboxId = UUID.randomUUID();
-        when(transactionOps.findTransactionStatus()).thenReturn(Optional.empty());
-
-        fastPath.registerAfterCommit(outboxId);
+    void testRequiresNewTransactionHasItsOwnBatch() {
+        TransactionStatus<Connection> inner = mock(TransactionStatus.class);
+        when(inner.getConnection()).thenReturn(mock(Connection.class));
+        ArgumentCaptor<TransactionSynchronization> outerSync = ArgumentCaptor.forClass(TransactionSynchronization.class);
+        ArgumentCaptor<TransactionSynchronization> innerSync = ArgumentCaptor.forClass(TransactionSynchronization.class);
+        OutboxStore.OutboxRow outerRow = row();
+        OutboxStore.OutboxRow innerRow = row();
 
-        verify(transactionStatus, never()).registerSynchronization(any());
-        verifyNoInteractions(relay);
+        when(transactionOps.findTransactionStatus()).thenReturn((Optional) Optional.of(transactionStatus));
+        fastPath.registerAfterCommit(outerRow);
+        // A REQUIRES_NEW transaction suspends the outer one and runs on its own connection
+        when(transactionOps.findTransactionStatus()).thenReturn((Optional) Optional.of(inner));
+        fastPath.registerAfterCommit(innerRow);
+        verify(inner).registerSynchronization(innerSync.capture());
+        innerSync.getValue().afterCommit();
+        innerSync.getValue().afterCompletion(TransactionSynchronization.Status.COMMITTED);
+
+        verify(dispatcher).submit(List.of(innerRow));
+
+        // The outer transaction rolls back; its row is never published
+        verify(transactionStatus).registerSynchronization(outerSync.capture());
+        outerSync.getValue().afterCompletion(TransactionSynchronization.Status.ROLLED_BACK);
+        verifyNoMoreInteractions(dispatcher);
     }
 }
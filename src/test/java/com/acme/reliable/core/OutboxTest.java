@@ -26,7 +26,7 @@ class OutboxTest {
         when(queueNaming.buildCommandQueue("CreateUser")).thenReturn("APP.CMD.CreateUser.Q");
         when(queueNaming.getReplyQueue()).thenReturn("APP.CMD.REPLY.Q");
 
-        outbox = new Outbox(messagingConfig);
+        outbox = new Outbox(messagingConfig, new UuidV7Generator(), Tracing.noop());
     }
 
     @Test
@@ -72,6 +72,7 @@ class OutboxTest {
         assertEquals("UserCreated", row.type());
         assertEquals("{\"userId\":\"456\"}", row.payload());
         assertEquals(0, row.attempts());
+        assertEquals(OutboxStore.OutboxRow.PRIORITY_LOW, row.priority());
         assertTrue(row.headers().isEmpty());
     }
 
@@ -103,6 +104,7 @@ class OutboxTest {
         assertEquals("CommandCompleted", row.type());
         assertEquals("{\"result\":\"success\"}", row.payload());
         assertEquals(0, row.attempts());
+        assertEquals(OutboxStore.OutboxRow.PRIORITY_HIGH, row.priority());
 
         assertEquals(env.correlationId().toString(), row.headers().get("correlationId"));
     }
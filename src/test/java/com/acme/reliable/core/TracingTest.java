@@ -0,0 +1,109 @@
+package com.acme.reliable.core;
+
+import com.acme.reliable.config.MessagingConfig;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TracingTest {
+
+    private InMemorySpanExporter exporter;
+    private Tracing tracing;
+
+    @BeforeEach
+    void setUp() {
+        exporter = InMemorySpanExporter.create();
+        tracing = new Tracing(OpenTelemetrySdk.builder()
+            .setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter)).build())
+            .build());
+    }
+
+    @Test
+    void testOutboxRowsCarryTheCurrentSpan() {
+        MessagingConfig config = mock(MessagingConfig.class);
+        MessagingConfig.QueueNaming naming = mock(MessagingConfig.QueueNaming.class);
+        when(config.getQueueNaming()).thenReturn(naming);
+        when(naming.buildCommandQueue("CreateUser")).thenReturn("APP.CMD.CreateUser.Q");
+        var outbox = new Outbox(config, new UuidV7Generator(), tracing);
+
+        var row = tracing.inSpan("accept CreateUser", SpanKind.INTERNAL, Context.root(),
+            () -> outbox.rowCommandRequested("CreateUser", UUID.randomUUID(), "k", "{}", Map.of()));
+
+        SpanData accept = exporter.getFinishedSpanItems().get(0);
+        assertEquals("00-" + accept.getTraceId() + "-" + accept.getSpanId() + "-01", row.headers().get(Tracing.TRACEPARENT));
+        assertEquals("CreateUser", row.headers().get("commandName"));
+    }
+
+    @Test
+    void testExtractContinuesRemoteParent() {
+        var parent = tracing.extract(Map.of(Tracing.TRACEPARENT, "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01"));
+
+        tracing.runInSpan("process CreateUser", SpanKind.CONSUMER, parent, () -> { });
+
+        SpanData span = exporter.getFinishedSpanItems().get(0);
+        assertEquals("0af7651916cd43dd8448eb211c80319c", span.getTraceId());
+        assertEquals("b7ad6b7169203331", span.getParentSpanId());
+        assertEquals(SpanKind.CONSUMER, span.getKind());
+    }
+
+    @Test
+    void testMissingHeadersStartNewTrace() {
+        assertFalse(Span.fromContext(tracing.extract(Map.of())).getSpanContext().isValid());
+        assertFalse(Span.fromContext(tracing.extract(null)).getSpanContext().isValid());
+        assertTrue(tracing.currentHeaders().isEmpty());
+    }
+
+    @Test
+    void testDbSpansOnlyInsideTracedWork() {
+        assertEquals(1, tracing.inDbSpan("OutboxStore.claim", () -> 1));
+        assertTrue(exporter.getFinishedSpanItems().isEmpty());
+
+        tracing.runInSpan("accept CreateUser", SpanKind.INTERNAL, Context.root(),
+            () -> tracing.inDbSpan("CommandStore.savePendingIfAbsent", () -> 1));
+
+        var spans = exporter.getFinishedSpanItems();
+        assertEquals(2, spans.size());
+        SpanData db = spans.get(0);
+        assertEquals("CommandStore.savePendingIfAbsent", db.getName());
+        assertEquals(SpanKind.CLIENT, db.getKind());
+        assertEquals("postgresql", db.getAttributes().get(AttributeKey.stringKey("db.system")));
+        assertEquals(spans.get(1).getSpanId(), db.getParentSpanId());
+    }
+
+    @Test
+    void testFailedWorkMarksSpan() {
+        assertThrows(IllegalStateException.class, () -> tracing.runInSpan("process CreateUser", SpanKind.CONSUMER,
+            Context.root(), () -> { throw new IllegalStateException("boom"); }));
+
+        SpanData span = exporter.getFinishedSpanItems().get(0);
+        assertEquals(StatusCode.ERROR, span.getStatus().getStatusCode());
+        assertEquals(1, span.getEvents().size());
+    }
+
+    @Test
+    void testNoopAddsNoHeaders() {
+        var noop = Tracing.noop();
+        Map<String, String> headers = Map.of("commandId", "c-1");
+
+        var result = noop.inSpan("accept CreateUser", SpanKind.INTERNAL, Context.root(), noop::currentHeaders);
+
+        assertTrue(result.isEmpty());
+        assertSame(headers, noop.withSpan(headers, Span.getInvalid()));
+    }
+}
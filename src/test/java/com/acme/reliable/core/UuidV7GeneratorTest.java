@@ -0,0 +1,53 @@
+package com.acme.reliable.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    void testEncodesVersionVariantAndTimestamp() {
+        var generator = new UuidV7Generator(() -> 1_700_000_000_123L);
+
+        UUID id = generator.newId();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(Instant.ofEpochMilli(1_700_000_000_123L), UuidV7Generator.timestampOf(id));
+    }
+
+    @Test
+    void testIdsIncreaseWithinSameMillisecond() {
+        var generator = new UuidV7Generator(() -> 1_700_000_000_000L);
+
+        UUID previous = generator.newId();
+        for (int i = 0; i < 10_000; i++) {
+            UUID next = generator.newId();
+            assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = next;
+        }
+        // More ids than the 12-bit counter holds carry the timestamp forward
+        assertEquals(Instant.ofEpochMilli(1_700_000_000_002L), UuidV7Generator.timestampOf(previous));
+    }
+
+    @Test
+    void testIdsKeepIncreasingWhenClockStepsBack() {
+        long[] now = {1_700_000_000_500L};
+        var generator = new UuidV7Generator(() -> now[0]);
+
+        UUID first = generator.newId();
+        now[0] -= 1_000;
+        UUID second = generator.newId();
+
+        assertTrue(Long.compareUnsigned(second.getMostSignificantBits(), first.getMostSignificantBits()) > 0);
+    }
+
+    @Test
+    void testTimestampOfRandomUuidIsNull() {
+        assertNull(UuidV7Generator.timestampOf(UUID.randomUUID()));
+    }
+}
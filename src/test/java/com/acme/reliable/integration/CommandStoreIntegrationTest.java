@@ -4,7 +4,6 @@ import com.acme.reliable.spi.CommandStore;
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import jakarta.inject.Inject;
 import org.junit.jupiter.api.Test;
-import java.time.Instant;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,40 +34,6 @@ class CommandStoreIntegrationTest {
         assertEquals("PENDING", found.get().status());
     }
 
-    @Test
-    void testMarkRunning() {
-        String idem = "test-run-" + UUID.randomUUID();
-        UUID id = commandStore.savePending(
-            "TestCommand",
-            idem,
-            "test-key",
-            "{}",
-            "{}"
-        );
-
-        commandStore.markRunning(id, Instant.now().plusSeconds(300));
-        var found = commandStore.find(id);
-        assertTrue(found.isPresent());
-        assertEquals("RUNNING", found.get().status());
-    }
-
-    @Test
-    void testMarkSucceeded() {
-        String idem = "test-success-" + UUID.randomUUID();
-        UUID id = commandStore.savePending(
-            "TestCommand",
-            idem,
-            "test-key",
-            "{}",
-            "{}"
-        );
-
-        commandStore.markSucceeded(id);
-        var found = commandStore.find(id);
-        assertTrue(found.isPresent());
-        assertEquals("SUCCEEDED", found.get().status());
-    }
-
     @Test
     void testMarkFailed() {
         String idem = "test-fail-" + UUID.randomUUID();
@@ -87,11 +52,15 @@ class CommandStoreIntegrationTest {
     }
 
     @Test
-    void testIdempotencyKey() {
-        String idem = "test-idem-unique-" + UUID.randomUUID();
-        commandStore.savePending("TestCommand", idem, "test-key", "{}", "{}");
+    void testSavePendingIfAbsent() {
+        String idem = "test-idem-accept-" + UUID.randomUUID();
+
+        var first = commandStore.savePendingIfAbsent("TestCommand", idem, "test-key", "{}", "{}");
+        var second = commandStore.savePendingIfAbsent("TestCommand", idem, "other-key", "{}", "{}");
 
-        assertTrue(commandStore.existsByIdempotencyKey(idem));
-        assertFalse(commandStore.existsByIdempotencyKey("non-existent"));
+        assertTrue(first.created());
+        assertEquals("PENDING", first.status());
+        assertFalse(second.created());
+        assertEquals(first.id(), second.id());
     }
 }
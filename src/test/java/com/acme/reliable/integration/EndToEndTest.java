@@ -4,7 +4,6 @@ import com.acme.reliable.core.CommandBus;
 import com.acme.reliable.core.Envelope;
 import com.acme.reliable.core.Executor;
 import com.acme.reliable.spi.CommandStore;
-import com.acme.reliable.spi.InboxStore;
 import com.acme.reliable.spi.OutboxStore;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpStatus;
@@ -47,9 +46,6 @@ class EndToEndTest {
     @Inject
     OutboxStore outboxStore;
 
-    @Inject
-    InboxStore inboxStore;
-
     @Inject
     Executor executor;
 
@@ -57,7 +53,7 @@ class EndToEndTest {
     DataSource dataSource;
 
     @Test
-    void testEndToEndCommandFlow() {
+    void testEndToEndCommandFlow() throws Exception {
         // Step 1: Submit command via CommandBus
         String idempotencyKey = "e2e-test-" + UUID.randomUUID();
         String commandName = "CreateUser";
@@ -97,8 +93,7 @@ class EndToEndTest {
         assertEquals("SUCCEEDED", updatedCommand.get().status());
 
         // Step 5: Verify inbox recorded the message (prevents duplicate processing)
-        boolean isDuplicate = !inboxStore.markIfAbsent(envelope.messageId().toString(), "CommandExecutor");
-        assertTrue(isDuplicate, "Message should be marked in inbox as processed");
+        assertTrue(queryInboxExists(envelope.messageId()), "Message should be marked in inbox as processed");
     }
 
     @Test
@@ -119,7 +114,7 @@ class EndToEndTest {
     }
 
     @Test
-    void testInboxDeduplicationPreventsDoubleProcessing() {
+    void testInboxDeduplicationPreventsDoubleProcessing() throws Exception {
         String idempotencyKey = "inbox-test-" + UUID.randomUUID();
         String businessKey = "user-" + UUID.randomUUID(); // Unique business key
         UUID commandId = commandBus.accept("CreateUser", idempotencyKey, businessKey, "{}", Map.of());
@@ -144,7 +139,7 @@ class EndToEndTest {
         assertEquals("SUCCEEDED", cmd1.get().status());
 
         // Reset command to PENDING to simulate retry scenario
-        commandStore.markRunning(commandId, Instant.now().plusSeconds(300));
+        markRunning(commandId);
 
         // Second processing with same message ID - should be skipped by inbox check
         executor.process(envelope);
@@ -238,8 +233,31 @@ class EndToEndTest {
         assertTrue(outboxEntries.isPresent(), "Should have outbox entries");
 
         // Verify inbox recorded the processing
-        boolean isDuplicate = !inboxStore.markIfAbsent(envelope.messageId().toString(), "CommandExecutor");
-        assertTrue(isDuplicate, "Message should be marked in inbox to prevent reprocessing");
+        assertTrue(queryInboxExists(envelope.messageId()), "Message should be marked in inbox to prevent reprocessing");
+    }
+
+    /**
+     * Helper method to query the inbox table directly; the executor records each message it processes there.
+     */
+    private boolean queryInboxExists(UUID messageId) throws Exception {
+        try (var conn = dataSource.getConnection();
+             var ps = conn.prepareStatement("SELECT 1 FROM inbox WHERE message_id = ? AND handler = 'CommandExecutor'")) {
+            ps.setString(1, messageId.toString());
+            try (var rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Helper method to put a command back to RUNNING, as a redelivery racing a finished attempt would find it.
+     */
+    private void markRunning(UUID commandId) throws Exception {
+        try (var conn = dataSource.getConnection();
+             var ps = conn.prepareStatement("UPDATE command SET status = 'RUNNING' WHERE id = ?")) {
+            ps.setObject(1, commandId);
+            ps.executeUpdate();
+        }
     }
 
     /**
@@ -0,0 +1,50 @@
+package com.acme.reliable.integration;
+
+import com.acme.reliable.spi.CommandStore;
+import com.acme.reliable.spi.ExecutionStore;
+import com.acme.reliable.spi.OutboxStore;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@MicronautTest(transactional = true, rollback = true)
+class ExecutionStoreIntegrationTest {
+
+    @Inject
+    ExecutionStore executionStore;
+
+    @Inject
+    CommandStore commandStore;
+
+    @Test
+    void testBeginMarksRunningOnce() {
+        UUID id = commandStore.savePending("TestCommand", "test-begin-" + UUID.randomUUID(), "test-key", "{}", "{}");
+        String messageId = "msg-" + UUID.randomUUID();
+
+        assertTrue(executionStore.begin(messageId, "CommandExecutor", id, Instant.now().plusSeconds(300)));
+        assertEquals("RUNNING", commandStore.find(id).get().status());
+
+        // A redelivery of the same message is a duplicate
+        assertFalse(executionStore.begin(messageId, "CommandExecutor", id, Instant.now().plusSeconds(300)));
+    }
+
+    @Test
+    void testCompleteMarksSucceededAndInsertsRows() {
+        UUID id = commandStore.savePending("TestCommand", "test-complete-" + UUID.randomUUID(), "test-key", "{}", "{}");
+        var reply = new OutboxStore.OutboxRow(UUID.randomUUID(), "reply", "TEST.REPLY.Q", "test-key",
+            "CommandCompleted", "{}", Map.of("correlationId", id.toString()), 0);
+        var event = new OutboxStore.OutboxRow(UUID.randomUUID(), "event", "events.TestCommand", "test-key",
+            "CommandCompleted", "{}", Map.of(), 0);
+
+        var ids = executionStore.complete(id, List.of(reply, event));
+
+        assertEquals(List.of(reply.id(), event.id()), ids);
+        assertEquals("SUCCEEDED", commandStore.find(id).get().status());
+    }
+}
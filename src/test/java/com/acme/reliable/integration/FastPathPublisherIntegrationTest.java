@@ -0,0 +1,62 @@
+package com.acme.reliable.integration;
+
+import com.acme.reliable.core.FastPathPublisher;
+import com.acme.reliable.relay.FastPathDispatcher;
+import com.acme.reliable.spi.OutboxStore;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.transaction.TransactionDefinition;
+import io.micronaut.transaction.TransactionOperations;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@MicronautTest(transactional = false)
+class FastPathPublisherIntegrationTest {
+
+    @Inject
+    TransactionOperations<Connection> transactionOps;
+
+    private static OutboxStore.OutboxRow row() {
+        return new OutboxStore.OutboxRow(UUID.randomUUID(), "event", "events.Test", "k", "T", "{}", Map.of(), 0);
+    }
+
+    @Test
+    void testRequiresNewTransactionPublishesOnItsOwnCommit() {
+        var dispatcher = mock(FastPathDispatcher.class);
+        var fastPath = new FastPathPublisher(transactionOps, dispatcher);
+        var outer = row();
+        var joined = row();
+        var inner = row();
+
+        assertThrows(IllegalStateException.class, () -> transactionOps.executeWrite(status -> {
+            fastPath.registerAfterCommit(outer);
+            transactionOps.execute(TransactionDefinition.of(TransactionDefinition.Propagation.REQUIRES_NEW), s -> {
+                fastPath.registerAfterCommit(inner);
+                return null;
+            });
+            // Committed on its own, while the outer transaction is still open
+            verify(dispatcher).submit(List.of(inner));
+            transactionOps.executeWrite(s -> {
+                fastPath.registerAfterCommit(joined);
+                return null;
+            });
+            throw new IllegalStateException("roll back the outer transaction");
+        }));
+
+        verifyNoMoreInteractions(dispatcher);
+
+        // The next transaction on this thread starts from an empty batch
+        var next = row();
+        transactionOps.executeWrite(status -> {
+            fastPath.registerAfterCommit(next);
+            return null;
+        });
+        verify(dispatcher).submit(List.of(next));
+    }
+}
@@ -0,0 +1,72 @@
+package com.acme.reliable.integration;
+
+import com.acme.reliable.config.OutboxConfig;
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.pg.OutboxPartitionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micronaut.data.connection.ConnectionOperations;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@MicronautTest(transactional = false)
+class OutboxPartitionManagerIntegrationTest {
+
+    @Inject
+    ConnectionOperations<Connection> connectionOps;
+
+    @Test
+    void testCreatesPartitionsAheadAndDropsExpiredOnes() {
+        var day = LocalDate.of(2001, 1, 1);
+        String expired = "outbox_p20010101";
+        execute("create table if not exists " + expired + " partition of outbox for values from ('"
+            + day + "') to ('" + day.plusDays(1) + "')");
+        execute("insert into " + expired + " (id, category, topic, key, type, payload, status, created_at) " +
+            "values (gen_random_uuid(), 'event', 'events.Old', 'k', 'T', '{}', 'PUBLISHED', '" + day + " 12:00')");
+        String expiredHistory = "outbox_history_p20010101";
+        execute("create table if not exists " + expiredHistory + " partition of outbox_history for values from ('"
+            + day + "') to ('" + day.plusDays(1) + "')");
+        execute("insert into " + expiredHistory + " (id, category, topic, key, type, attempts, created_at, published_at) " +
+            "values (gen_random_uuid(), 'event', 'events.Old', 'k', 'T', 1, '" + day + " 12:00', '" + day + " 12:00')");
+        var registry = new SimpleMeterRegistry();
+        var manager = new OutboxPartitionManager(connectionOps, new OutboxConfig(), new RelayConfig(), registry);
+
+        manager.onApplicationEvent(null);
+
+        String tomorrow = LocalDate.now().plusDays(1).format(DateTimeFormatter.BASIC_ISO_DATE);
+        assertFalse(exists(expired));
+        assertFalse(exists(expiredHistory));
+        assertTrue(exists("outbox_p" + tomorrow));
+        assertTrue(exists("outbox_history_p" + tomorrow));
+        assertEquals(2, manager.getPartitionsDropped());
+        assertEquals(2.0, registry.get("outbox.partitions.dropped").functionCounter().count());
+    }
+
+    private void execute(String sql) {
+        connectionOps.executeWrite(status -> {
+            try (var st = status.getConnection().createStatement()) {
+                return st.execute(sql);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private boolean exists(String table) {
+        return connectionOps.executeRead(status -> {
+            try (var rs = status.getConnection().createStatement()
+                    .executeQuery("select to_regclass('" + table + "') is not null")) {
+                rs.next();
+                return rs.getBoolean(1);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+}
@@ -1,9 +1,16 @@
 package com.acme.reliable.integration;
 
+import com.acme.reliable.core.UuidV7Generator;
 import com.acme.reliable.spi.OutboxStore;
+import io.micronaut.data.connection.ConnectionOperations;
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import jakarta.inject.Inject;
 import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -15,8 +22,11 @@ class OutboxStoreIntegrationTest {
     @Inject
     OutboxStore outboxStore;
 
+    @Inject
+    ConnectionOperations<Connection> connectionOps;
+
     @Test
-    void testAddAndClaimOne() {
+    void testAddAndClaim() {
         var row = new OutboxStore.OutboxRow(
             UUID.randomUUID(),
             "command",
@@ -31,12 +41,37 @@ class OutboxStoreIntegrationTest {
         UUID id = outboxStore.addReturningId(row);
         assertNotNull(id);
 
-        var claimed = outboxStore.claimOne(id);
+        var claimed = outboxStore.claim(1000, "test-worker").stream().filter(r -> r.id().equals(id)).findFirst();
         assertTrue(claimed.isPresent());
         assertEquals("command", claimed.get().category());
         assertEquals("TEST.Q", claimed.get().topic());
     }
 
+    @Test
+    void testClaimAllIfNewOnlyOnce() {
+        var row = new OutboxStore.OutboxRow(
+            UUID.randomUUID(), "reply", "TEST.REPLY.Q", "key-1", "CommandCompleted", "{}", Map.of(), 0);
+        outboxStore.addReturningId(row);
+
+        UUID unknown = UUID.randomUUID();
+        assertEquals(java.util.Set.of(row.id()), outboxStore.claimAllIfNew(List.of(row.id(), unknown), "test-worker"));
+        assertTrue(outboxStore.claimAllIfNew(List.of(row.id()), "test-worker").isEmpty());
+    }
+
+    @Test
+    void testClaimRestrictedToShards() {
+        var row = new OutboxStore.OutboxRow(
+            UUID.randomUUID(), "event", "events.test", "shard-key-" + UUID.randomUUID(), "TestEvent", "{}", Map.of(), 0);
+        outboxStore.addReturningId(row);
+        var all = new java.util.HashSet<Integer>();
+        for (int i = 0; i < 64; i++) {
+            all.add(i);
+        }
+        var claimed = outboxStore.claim(1000, "test-worker", all);
+        assertTrue(claimed.stream().anyMatch(r -> r.id().equals(row.id())));
+        assertTrue(outboxStore.claim(1000, "test-worker", java.util.Set.of()).isEmpty());
+    }
+
     @Test
     void testClaim() {
         // Add multiple outbox entries
@@ -60,45 +95,121 @@ class OutboxStoreIntegrationTest {
     }
 
     @Test
-    void testMarkPublished() {
-        var row = new OutboxStore.OutboxRow(
-            UUID.randomUUID(),
-            "command",
-            "TEST.Q",
-            "key-1",
-            "TestCommand",
-            "{}",
-            Map.of(),
-            0
-        );
+    void testClaimKeepsShareForEachPriority() {
+        var ids = new UuidV7Generator();
+        var events = new ArrayList<UUID>();
+        for (int i = 0; i < 20; i++) {
+            var row = new OutboxStore.OutboxRow(ids.newId(), "event", "events.test", "key-" + i, "TestEvent",
+                "{}", Map.of(), 0, OutboxStore.OutboxRow.PRIORITY_LOW);
+            outboxStore.addReturningId(row);
+            events.add(row.id());
+        }
+        var replies = new ArrayList<UUID>();
+        for (int i = 0; i < 20; i++) {
+            var row = new OutboxStore.OutboxRow(ids.newId(), "reply", "TEST.REPLY.Q", "key-" + i, "CommandCompleted",
+                "{}", Map.of(), 0, OutboxStore.OutboxRow.PRIORITY_HIGH);
+            outboxStore.addReturningId(row);
+            replies.add(row.id());
+        }
 
-        UUID id = outboxStore.addReturningId(row);
-        outboxStore.claimOne(id);
-        outboxStore.markPublished(id);
+        // Newer replies go first, but with the default 8:4:1 weights older events still get one row per round
+        var claimed = outboxStore.claim(9, "test-worker").stream().map(OutboxStore.OutboxRow::id).toList();
+        assertEquals(8, claimed.stream().filter(replies::contains).count());
+        assertEquals(1, claimed.stream().filter(events::contains).count());
+        // Returned by priority, then oldest first (ids break ties within this test's transaction)
+        var expected = new ArrayList<>(replies.subList(0, 8));
+        expected.add(events.get(0));
+        assertEquals(expected, claimed);
+    }
+
+    @Test
+    void testMarkAllPublished() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(outboxStore.addReturningId(new OutboxStore.OutboxRow(
+                UUID.randomUUID(), "event", "events.test", "key-" + i, "TestEvent", "{}", Map.of(), 0)));
+        }
 
-        // After publishing, claiming should return empty
-        var reClaim = outboxStore.claimOne(id);
-        assertFalse(reClaim.isPresent());
+        outboxStore.markAllPublished(ids);
+
+        assertTrue(outboxStore.claimAllIfNew(ids, "test-worker").isEmpty());
     }
 
     @Test
-    void testReschedule() {
-        var row = new OutboxStore.OutboxRow(
-            UUID.randomUUID(),
-            "command",
-            "TEST.Q",
-            "key-1",
-            "TestCommand",
-            "{}",
-            Map.of(),
-            0
-        );
+    void testRescheduleAll() {
+        UUID soon = outboxStore.addReturningId(new OutboxStore.OutboxRow(
+            UUID.randomUUID(), "command", "TEST.Q", "key-1", "TestCommand", "{}", Map.of(), 0));
+        UUID later = outboxStore.addReturningId(new OutboxStore.OutboxRow(
+            UUID.randomUUID(), "command", "TEST.Q", "key-2", "TestCommand", "{}", Map.of(), 0));
+        outboxStore.claimAllIfNew(List.of(soon, later), "test-worker");
 
-        UUID id = outboxStore.addReturningId(row);
-        outboxStore.claimOne(id);
-        outboxStore.reschedule(id, 5000, "Test error");
+        outboxStore.rescheduleAll(List.of(
+            new OutboxStore.Reschedule(soon, 0, "first error"),
+            new OutboxStore.Reschedule(later, 60_000, "second error")
+        ));
+
+        // Both rows are back to NEW; only the one with a due next_at is claimable by a sweep
+        var claimed = outboxStore.claim(100, "test-worker");
+        assertTrue(claimed.stream().anyMatch(r -> r.id().equals(soon) && r.attempts() == 1));
+        assertTrue(claimed.stream().noneMatch(r -> r.id().equals(later)));
+    }
+
+    @Test
+    void testReleaseAllReturnsRowsWithoutAttempt() {
+        UUID id = outboxStore.addReturningId(new OutboxStore.OutboxRow(
+            UUID.randomUUID(), "event", "events.test", "key-1", "TestEvent", "{}", Map.of(), 0));
+        outboxStore.claimAllIfNew(List.of(id), "test-worker");
+
+        outboxStore.releaseAll(List.of(id));
+
+        var claimed = outboxStore.claim(100, "test-worker");
+        assertTrue(claimed.stream().anyMatch(r -> r.id().equals(id) && r.attempts() == 0));
+    }
+
+    @Test
+    void testParkAllKeepsErrorAndNeverFallsDue() {
+        UUID id = outboxStore.addReturningId(new OutboxStore.OutboxRow(
+            UUID.randomUUID(), "event", "events.test", "key-1", "TestEvent", "{}", Map.of(), 0));
+
+        outboxStore.parkAll(Map.of(id, "InvalidTopicException: events.test"));
+
+        assertTrue(outboxStore.claim(100, "test-worker").stream().noneMatch(r -> r.id().equals(id)));
+        String error = connectionOps.executeRead(status -> {
+            try (var ps = status.getConnection().prepareStatement(
+                    "select last_error from outbox where id = ? and next_at = 'infinity'")) {
+                ps.setObject(1, id);
+                var rs = ps.executeQuery();
+                return rs.next() ? rs.getString(1) : null;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals("InvalidTopicException: events.test", error);
+    }
+
+    @Test
+    void testCreatedAtFollowsDatabaseClockWithinSkew() {
+        // An id minted on a node whose clock runs an hour ahead
+        long millis = System.currentTimeMillis() + Duration.ofHours(1).toMillis();
+        var id = new UUID((millis << 16) | 0x7000L, 0x8000000000000001L);
+
+        outboxStore.addReturningId(new OutboxStore.OutboxRow(
+            id, "event", "events.test", "key-1", "TestEvent", "{}", Map.of(), 0));
 
-        // After rescheduling with future time, immediate claim should be empty
-        // (depends on next_at being in the future)
+        // created_at is held to five minutes from the id rather than taking its timestamp
+        long ahead = connectionOps.executeRead(status -> {
+            try (var ps = status.getConnection().prepareStatement(
+                    "select extract(epoch from created_at - now()) from outbox where id = ?")) {
+                ps.setObject(1, id);
+                var rs = ps.executeQuery();
+                rs.next();
+                return rs.getLong(1);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(Duration.ofMinutes(55).toSeconds(), ahead, 1);
+        // Statements by id still find it
+        assertFalse(outboxStore.claimAllIfNew(List.of(id), "test-worker").isEmpty());
     }
 }
@@ -0,0 +1,66 @@
+package com.acme.reliable.kafka;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MnKafkaPublisherTest {
+
+    private MockProducer<String, String> producer;
+    private MnKafkaPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+        publisher = new MnKafkaPublisher(producer);
+    }
+
+    @Test
+    void testPublishAsyncCompletesOnAck() throws Exception {
+        var ack = publisher.publishAsync("events.Test", "k1", "{}", Map.of("commandId", "c-1"));
+
+        assertFalse(ack.isDone());
+        assertEquals(1, producer.history().size());
+        assertEquals("c-1", new String(producer.history().get(0).headers().lastHeader("commandId").value()));
+
+        producer.completeNext();
+
+        assertTrue(ack.isDone());
+        assertEquals("events.Test", ack.get().topic());
+    }
+
+    @Test
+    void testPublishAsyncFailsOnBrokerError() {
+        var ack = publisher.publishAsync("events.Test", "k1", "{}", Map.of());
+
+        producer.errorNext(new RuntimeException("NotLeaderOrFollower"));
+
+        var e = assertThrows(ExecutionException.class, ack::get);
+        assertTrue(e.getCause().getMessage().contains("events.Test"));
+    }
+
+    @Test
+    void testPublishAsyncFailsWhenSendThrows() {
+        producer.close();
+
+        var ack = publisher.publishAsync("events.Test", "k1", "{}", null);
+
+        assertTrue(ack.isCompletedExceptionally());
+    }
+
+    @Test
+    void testPublishBlocksUntilAck() {
+        producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+        publisher = new MnKafkaPublisher(producer);
+
+        publisher.publish("events.Test", "k1", "{}", Map.of());
+
+        assertEquals(1, producer.history().size());
+    }
+}
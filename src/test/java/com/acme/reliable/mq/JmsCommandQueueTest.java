@@ -0,0 +1,158 @@
+package com.acme.reliable.mq;
+
+import com.acme.reliable.config.MqSessionPoolConfig;
+import com.acme.reliable.spi.CommandQueue.OutgoingMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JmsCommandQueueTest {
+
+    private ConnectionFactory cf;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private JmsSessionPool pool;
+
+    @BeforeEach
+    void setUp() throws JMSException {
+        cf = mock(ConnectionFactory.class);
+        connection = mock(Connection.class);
+        session = mock(Session.class);
+        producer = mock(MessageProducer.class);
+
+        when(cf.createConnection()).thenReturn(connection);
+        when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenReturn(session);
+        when(session.createProducer(null)).thenReturn(producer);
+        when(session.createQueue(anyString())).thenAnswer(inv -> {
+            Queue q = mock(Queue.class);
+            when(q.getQueueName()).thenReturn(inv.getArgument(0));
+            return q;
+        });
+        when(session.createTextMessage(anyString())).thenAnswer(inv -> mock(TextMessage.class));
+        when(session.getTransacted()).thenReturn(true);
+
+        var config = new MqSessionPoolConfig();
+        config.setConnections(1);
+        pool = new JmsSessionPool(cf, config, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private static List<OutgoingMessage> messages(int count) {
+        List<OutgoingMessage> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(new OutgoingMessage("APP.CMD.Test.Q", "{\"i\":" + i + "}", Map.of("commandId", "c-" + i)));
+        }
+        return result;
+    }
+
+    @Test
+    void testSendCommitsEachMessage() throws JMSException {
+        var queue = new JmsCommandQueue(pool, 100);
+
+        queue.send("APP.CMD.Test.Q", "{}", Map.of("correlationId", "corr-1", "replyTo", "APP.CMD.REPLY.Q", "mode", "mq"));
+
+        verify(producer).send(any(Queue.class), any(TextMessage.class));
+        verify(session).commit();
+    }
+
+    @Test
+    void testSendAllCommitsOncePerChunk() throws JMSException {
+        var queue = new JmsCommandQueue(pool, 2);
+
+        var failures = queue.sendAll(messages(5));
+
+        assertTrue(failures.isEmpty());
+        verify(producer, times(5)).send(any(Queue.class), any(TextMessage.class));
+        verify(session, times(3)).commit();
+    }
+
+    @Test
+    void testSendAllReportsFailedPutOnly() throws JMSException {
+        var queue = new JmsCommandQueue(pool, 100);
+        doNothing()
+            .doThrow(new JMSException("MQRC_Q_FULL"))
+            .doNothing()
+            .when(producer).send(any(Queue.class), any(TextMessage.class));
+
+        var failures = queue.sendAll(messages(3));
+
+        assertEquals(List.of(1), new ArrayList<>(failures.keySet()));
+        verify(session, times(1)).commit();
+    }
+
+    @Test
+    void testSendAllFailsWholeChunkWhenCommitFails() throws JMSException {
+        var queue = new JmsCommandQueue(pool, 2);
+        doThrow(new JMSException("MQRC_CONNECTION_BROKEN")).doNothing().when(session).commit();
+
+        var failures = queue.sendAll(messages(3));
+
+        assertEquals(List.of(0, 1), new ArrayList<>(failures.keySet()));
+        verify(session).rollback();
+        verify(session).close();
+    }
+
+    @Test
+    void testResolvesEachDestinationOncePerSession() throws JMSException {
+        var queue = new JmsCommandQueue(pool, 100);
+        var headers = Map.of("correlationId", "corr-1", "replyTo", "APP.CMD.REPLY.Q");
+
+        queue.send("APP.CMD.Test.Q", "{}", headers);
+        queue.send("APP.CMD.Test.Q", "{}", headers);
+        queue.sendAll(messages(3));
+
+        verify(session, times(1)).createQueue("APP.CMD.Test.Q");
+        verify(session, times(1)).createQueue("APP.CMD.REPLY.Q");
+    }
+
+    @Test
+    void testMapsHeadersThroughPlan() throws JMSException {
+        var queue = new JmsCommandQueue(pool, 100);
+        TextMessage msg = mock(TextMessage.class);
+        when(session.createTextMessage("{}")).thenReturn(msg);
+
+        queue.send("APP.CMD.Test.Q", "{}", Map.of(
+            "correlationId", "corr-1", "replyTo", "APP.CMD.REPLY.Q", "mode", "mq",
+            "commandId", "c-1", "JMSXDeliveryCount", "1"));
+
+        verify(msg).setJMSCorrelationID("corr-1");
+        verify(msg).setJMSReplyTo(any(Queue.class));
+        verify(msg).setStringProperty("commandId", "c-1");
+        verify(msg, never()).setStringProperty(eq("mode"), anyString());
+        verify(msg, never()).setStringProperty(eq("JMSXDeliveryCount"), anyString());
+    }
+
+    @Test
+    void testReusesPlanForSameHeaderNames() {
+        var queue = new JmsCommandQueue(pool, 100);
+
+        var first = queue.planFor(Map.of("commandId", "c-1", "correlationId", "a"));
+        var second = queue.planFor(new java.util.HashMap<>(Map.of("commandId", "c-2", "correlationId", "b")));
+
+        assertSame(first, second);
+        assertTrue(first.correlationId());
+        assertFalse(first.replyTo());
+        assertArrayEquals(new String[] {"commandId"}, first.properties());
+    }
+}
@@ -0,0 +1,161 @@
+package com.acme.reliable.mq;
+
+import com.acme.reliable.config.MqSessionPoolConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JmsSessionPoolTest {
+
+    private ConnectionFactory cf;
+    private Connection connection1;
+    private Connection connection2;
+    private MqSessionPoolConfig config;
+    private JmsSessionPool pool;
+
+    @BeforeEach
+    void setUp() throws JMSException {
+        cf = mock(ConnectionFactory.class);
+        connection1 = mockConnection();
+        connection2 = mockConnection();
+        when(cf.createConnection()).thenReturn(connection1, connection2);
+
+        config = new MqSessionPoolConfig();
+        config.setConnections(2);
+        config.setMaxSessions(2);
+        config.setBorrowTimeout(Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static Connection mockConnection() throws JMSException {
+        Connection connection = mock(Connection.class);
+        when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenAnswer(inv -> {
+            Session session = mock(Session.class);
+            when(session.getTransacted()).thenReturn(true);
+            when(session.createProducer(null)).thenReturn(mock(MessageProducer.class));
+            return session;
+        });
+        return connection;
+    }
+
+    @Test
+    void testReusesIdleSession() {
+        pool = new JmsSessionPool(cf, config, new SimpleMeterRegistry());
+
+        var first = pool.borrow();
+        pool.release(first, false);
+        var second = pool.borrow();
+
+        assertSame(first, second);
+        assertEquals(1, pool.getOpenSessions());
+        assertEquals(1, pool.getActiveSessions());
+        assertEquals(2, pool.getBorrowCount());
+    }
+
+    @Test
+    void testExportsPoolStateAsMeters() {
+        var registry = new SimpleMeterRegistry();
+        pool = new JmsSessionPool(cf, config, registry);
+
+        var first = pool.borrow();
+        pool.release(pool.borrow(), false);
+
+        assertEquals(1.0, registry.get("mq.session.pool.sessions").tag("state", "active").gauge().value());
+        assertEquals(1.0, registry.get("mq.session.pool.sessions").tag("state", "idle").gauge().value());
+        assertEquals(2, registry.get("mq.session.borrow.wait").functionTimer().count());
+        pool.release(first, false);
+    }
+
+    @Test
+    void testBorrowTimesOutWhenAllSessionsInUse() {
+        pool = new JmsSessionPool(cf, config, new SimpleMeterRegistry());
+        pool.borrow();
+        pool.borrow();
+
+        assertThrows(IllegalStateException.class, () -> pool.borrow());
+        assertEquals(1, pool.getBorrowTimeouts());
+        assertEquals(2, pool.getOpenSessions());
+    }
+
+    @Test
+    void testSpreadsSessionsAcrossConnections() throws JMSException {
+        pool = new JmsSessionPool(cf, config, new SimpleMeterRegistry());
+
+        pool.borrow();
+        pool.borrow();
+
+        verify(connection1).createSession(true, Session.SESSION_TRANSACTED);
+        verify(connection2).createSession(true, Session.SESSION_TRANSACTED);
+    }
+
+    @Test
+    void testBrokenSessionIsClosedAndPermitReturned() throws JMSException {
+        pool = new JmsSessionPool(cf, config, new SimpleMeterRegistry());
+
+        var broken = pool.borrow();
+        pool.release(broken, true);
+
+        verify(broken.session).close();
+        assertEquals(0, pool.getOpenSessions());
+        assertEquals(0, pool.getActiveSessions());
+        assertNotSame(broken, pool.borrow());
+    }
+
+    @Test
+    void testInvalidIdleSessionIsDiscarded() throws JMSException {
+        pool = new JmsSessionPool(cf, config, new SimpleMeterRegistry());
+
+        var stale = pool.borrow();
+        pool.release(stale, false);
+        when(stale.session.getTransacted()).thenThrow(new jakarta.jms.IllegalStateException("Session closed"));
+
+        var fresh = pool.borrow();
+
+        assertNotSame(stale, fresh);
+        verify(stale.session).close();
+        assertEquals(1, pool.getOpenSessions());
+    }
+
+    @Test
+    void testEvictsSessionsIdleLongerThanTimeout() throws JMSException {
+        config.setIdleTimeout(Duration.ZERO);
+        pool = new JmsSessionPool(cf, config, new SimpleMeterRegistry());
+
+        var s = pool.borrow();
+        pool.release(s, false);
+        pool.evictIdle();
+
+        verify(s.session).close();
+        assertEquals(0, pool.getIdleSessions());
+        assertEquals(0, pool.getOpenSessions());
+    }
+
+    @Test
+    void testShutdownClosesConnections() throws JMSException {
+        pool = new JmsSessionPool(cf, config, new SimpleMeterRegistry());
+        pool.release(pool.borrow(), false);
+
+        pool.shutdown();
+        pool = null;
+
+        verify(connection1).close();
+        verify(connection2).close();
+    }
+}
@@ -0,0 +1,28 @@
+package com.acme.reliable.pg;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxPartitionManagerTest {
+
+    @Test
+    void testPartitionNameIsDaySuffixed() {
+        assertEquals("outbox_p20250307", OutboxPartitionManager.partitionName("outbox", LocalDate.of(2025, 3, 7)));
+        assertEquals("outbox_history_p20250307", OutboxPartitionManager.partitionName("outbox_history", LocalDate.of(2025, 3, 7)));
+    }
+
+    @Test
+    void testOnlyDailyPartitionsBeforeCutoffExpire() {
+        var cutoff = LocalDate.of(2025, 3, 7);
+
+        assertTrue(OutboxPartitionManager.isExpired("outbox", "outbox_p20250306", cutoff));
+        assertFalse(OutboxPartitionManager.isExpired("outbox", "outbox_p20250307", cutoff));
+        assertFalse(OutboxPartitionManager.isExpired("outbox", "outbox_p20250308", cutoff));
+        assertFalse(OutboxPartitionManager.isExpired("outbox", "outbox_default", cutoff));
+        assertFalse(OutboxPartitionManager.isExpired("outbox", "outbox_history_p20250306", cutoff));
+        assertTrue(OutboxPartitionManager.isExpired("outbox_history", "outbox_history_p20250306", cutoff));
+    }
+}
@@ -0,0 +1,136 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.config.TimeoutConfig;
+import com.acme.reliable.relay.OutboxRelay;
+import com.acme.reliable.spi.OutboxStore;
+import com.acme.reliable.spi.OutboxStore.OutboxRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.replication.LogSequenceNumber;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the replication engine against a real server: logical decoding needs {@code wal_level=logical}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class OutboxReplicationTailerIntegrationTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine")
+        .withCommand("postgres", "-c", "wal_level=logical");
+
+    private static final String SLOT = "outbox_relay_it";
+
+    private final OutboxRelay relay = mock(OutboxRelay.class);
+    private final List<List<UUID>> published = new CopyOnWriteArrayList<>();
+    private OutboxReplicationTailer tailer;
+
+    @BeforeEach
+    void setUp() {
+        Flyway.configure()
+            .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+            .load()
+            .migrate();
+        when(relay.publishInOrder(anyList())).thenAnswer(inv -> {
+            List<OutboxRow> rows = inv.getArgument(0);
+            published.add(rows.stream().map(OutboxRow::id).toList());
+            return Map.of();
+        });
+        var relayConfig = new RelayConfig();
+        relayConfig.setReplicationSlot(SLOT);
+        relayConfig.setReplicationStatusInterval(Duration.ofMillis(100));
+        tailer = new OutboxReplicationTailer(relay, mock(OutboxStore.class), relayConfig, new TimeoutConfig(), new SimpleMeterRegistry(), 1,
+            POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        tailer.shutdown();
+        await(() -> !query("select active from pg_replication_slots where slot_name = '" + SLOT + "'").equals("t"));
+        query("select pg_drop_replication_slot('" + SLOT + "')");
+    }
+
+    @Test
+    void testStreamsInsertsInCommitOrderAndConfirmsLsn() throws Exception {
+        tailer.onApplicationEvent(null);
+        // Inserts committed before the slot exists are not streamed
+        await(() -> query("select active from pg_replication_slots where slot_name = '" + SLOT + "'").equals("t"));
+        var start = LogSequenceNumber.valueOf(query("select pg_current_wal_lsn()"));
+
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        try (var earlier = connect(); var later = connect()) {
+            earlier.setAutoCommit(false);
+            later.setAutoCommit(false);
+            insert(earlier, first);
+            insert(later, second);
+            later.commit();
+            insert(earlier, third);
+            earlier.commit();
+        }
+        var committed = LogSequenceNumber.valueOf(query("select pg_current_wal_lsn()"));
+
+        await(() -> published.size() == 2);
+        // The transaction that began first committed last, so it is published last, as one batch
+        assertEquals(List.of(List.of(second), List.of(first, third)), published);
+        assertEquals(3, tailer.getRowsPublished());
+
+        await(() -> tailer.getTransactions() >= 2);
+        long confirmed = LogSequenceNumber.valueOf(tailer.getConfirmedLsn()).asLong();
+        assertTrue(confirmed > start.asLong());
+        assertTrue(confirmed <= committed.asLong());
+        // The slot itself moves on, so a restarted tailer does not replay these transactions
+        await(() -> LogSequenceNumber.valueOf(query(
+            "select confirmed_flush_lsn from pg_replication_slots where slot_name = '" + SLOT + "'")).asLong() >= confirmed);
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+
+    private static void insert(Connection conn, UUID id) throws SQLException {
+        try (var ps = conn.prepareStatement(
+                "insert into outbox (id, category, topic, key, type, payload, status, created_at) " +
+                "values (?, 'command', 'APP.CMD.Test.Q', 'k', 'Test', '{}', 'NEW', now())")) {
+            ps.setObject(1, id);
+            ps.executeUpdate();
+        }
+    }
+
+    private static String query(String sql) {
+        try (var conn = connect(); var rs = conn.createStatement().executeQuery(sql)) {
+            return rs.next() ? String.valueOf(rs.getString(1)) : "";
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 30s");
+            Thread.sleep(50);
+        }
+    }
+}
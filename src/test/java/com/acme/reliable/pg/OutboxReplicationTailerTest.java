@@ -0,0 +1,130 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.config.TimeoutConfig;
+import com.acme.reliable.core.PermanentException;
+import com.acme.reliable.relay.OutboxRelay;
+import com.acme.reliable.spi.OutboxStore;
+import com.acme.reliable.spi.OutboxStore.OutboxRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OutboxReplicationTailerTest {
+
+    private final OutboxRelay relay = mock(OutboxRelay.class);
+    private final OutboxStore store = mock(OutboxStore.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OutboxReplicationTailer tailer = tailer(new RelayConfig());
+
+    private OutboxReplicationTailer tailer(RelayConfig config) {
+        return new OutboxReplicationTailer(
+            relay, store, config, new TimeoutConfig(), registry, 1, "jdbc:postgresql://localhost/test", "u", "p");
+    }
+
+    private static OutboxRow row(String topic) {
+        return new OutboxRow(UUID.randomUUID(), "command", topic, "k", "T", "{}", Map.of(), 0);
+    }
+
+    @Test
+    void testPublishesTransactionOnce() throws InterruptedException {
+        var rows = List.of(row("Q1"), row("Q2"));
+        when(relay.publishInOrder(rows)).thenReturn(Map.of());
+
+        tailer.publishAll(rows, () -> fail("no retry expected"));
+
+        verify(relay, times(1)).publishInOrder(rows);
+        assertEquals(2, tailer.getRowsPublished());
+        assertEquals(0, tailer.getPublishRetries());
+        assertEquals(2.0, registry.get("outbox.replication.rows").functionCounter().count());
+    }
+
+    @Test
+    void testRetriesOnlyFailedRowsInOrder() throws InterruptedException {
+        var first = row("Q1");
+        var second = row("Q2");
+        var third = row("Q3");
+        var rows = List.of(first, second, third);
+        when(relay.publishInOrder(rows)).thenReturn(Map.of(
+            first.id(), new RuntimeException("down"), third.id(), new RuntimeException("down")));
+        when(relay.publishInOrder(List.of(first, third))).thenReturn(Map.of());
+        var keepAlives = new AtomicInteger();
+
+        tailer.publishAll(rows, keepAlives::incrementAndGet);
+
+        verify(relay).publishInOrder(List.of(first, third));
+        assertEquals(3, tailer.getRowsPublished());
+        assertEquals(1, tailer.getPublishRetries());
+        assertTrue(keepAlives.get() >= 1);
+    }
+
+    @Test
+    void testParksPermanentFailureWithoutRetry() throws InterruptedException {
+        var ok = row("Q1");
+        var poison = row("Q2");
+        var rows = List.of(ok, poison);
+        when(relay.publishInOrder(rows)).thenReturn(Map.of(
+            poison.id(), new RuntimeException("Failed to send", new PermanentException("no such destination"))));
+
+        tailer.publishAll(rows, () -> fail("no retry expected"));
+
+        verify(relay, times(1)).publishInOrder(any());
+        verify(store).parkAll(Map.of(poison.id(), "java.lang.RuntimeException: Failed to send"));
+        assertEquals(1, tailer.getRowsParked());
+        assertEquals(0, tailer.getPublishRetries());
+        assertEquals(1.0, registry.get("outbox.replication.parked").functionCounter().count());
+    }
+
+    @Test
+    void testParksRowStillFailingAfterMaxAttempts() throws InterruptedException {
+        var config = new RelayConfig();
+        config.setReplicationMaxAttempts(3);
+        var tailer = tailer(config);
+        var stuck = row("Q1");
+        when(relay.publishInOrder(List.of(stuck))).thenReturn(Map.of(stuck.id(), new RuntimeException("down")));
+
+        tailer.publishAll(List.of(stuck), () -> { });
+
+        verify(relay, times(3)).publishInOrder(List.of(stuck));
+        verify(store).parkAll(Map.of(stuck.id(), "java.lang.RuntimeException: down"));
+        assertEquals(2, tailer.getPublishRetries());
+        assertEquals(0, tailer.getRowsPublished());
+    }
+
+    @Test
+    void testKeepsRetryingWhenParkingFails() throws InterruptedException {
+        var config = new RelayConfig();
+        config.setReplicationMaxAttempts(1);
+        var tailer = tailer(config);
+        var stuck = row("Q1");
+        when(relay.publishInOrder(List.of(stuck)))
+            .thenReturn(Map.of(stuck.id(), new RuntimeException("down")))
+            .thenReturn(Map.of());
+        doThrow(new RuntimeException("database down")).when(store).parkAll(any());
+
+        tailer.publishAll(List.of(stuck), () -> { });
+
+        verify(relay, times(2)).publishInOrder(List.of(stuck));
+        assertEquals(1, tailer.getRowsPublished());
+        assertEquals(0, tailer.getRowsParked());
+    }
+
+    @Test
+    void testRetryableFailures() {
+        assertTrue(OutboxReplicationTailer.isRetryable(new RuntimeException("Failed to publish",
+            new org.apache.kafka.common.errors.TimeoutException("no ack"))));
+        assertTrue(OutboxReplicationTailer.isRetryable(new java.util.concurrent.TimeoutException("no ack")));
+        assertFalse(OutboxReplicationTailer.isRetryable(new RuntimeException("Failed to publish",
+            new org.apache.kafka.common.errors.TopicAuthorizationException("denied"))));
+        assertFalse(OutboxReplicationTailer.isRetryable(new RuntimeException("Failed to send",
+            new jakarta.jms.InvalidDestinationException("MQRC_UNKNOWN_OBJECT_NAME"))));
+        assertFalse(OutboxReplicationTailer.isRetryable(new IllegalArgumentException("Unknown category x")));
+    }
+}
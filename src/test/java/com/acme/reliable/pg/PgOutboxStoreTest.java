@@ -0,0 +1,102 @@
+package com.acme.reliable.pg;
+
+import com.acme.reliable.config.OutboxConfig;
+import com.acme.reliable.core.UuidV7Generator;
+import com.acme.reliable.spi.OutboxStore;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PgOutboxStoreTest {
+
+    @Test
+    void testMarkModeUpdatesStatus() {
+        var sql = PgOutboxStore.finalizeSql(new OutboxConfig());
+
+        assertTrue(sql.startsWith("UPDATE outbox SET status='PUBLISHED'"));
+    }
+
+    @Test
+    void testDeleteModeCopiesToHistory() {
+        var config = new OutboxConfig();
+        config.setPublishMode(OutboxConfig.PublishMode.DELETE);
+
+        var sql = PgOutboxStore.finalizeSql(config);
+
+        assertTrue(sql.contains("DELETE FROM outbox WHERE id = ANY(?)"));
+        assertTrue(sql.contains("INSERT INTO outbox_history"));
+    }
+
+    @Test
+    void testDeleteModeWithoutHistory() {
+        var config = new OutboxConfig();
+        config.setPublishMode(OutboxConfig.PublishMode.DELETE);
+        config.setHistory(false);
+
+        assertEquals("DELETE FROM outbox WHERE id = ANY(?)" + PgOutboxStore.CREATED_AT_RANGE, PgOutboxStore.finalizeSql(config));
+    }
+
+    @Test
+    void testCreatedAtRangeSpansTimeOrderedIds() throws SQLException {
+        var first = new UUID((1_000L << 16) | 0x7000L, 0x8000000000000000L);
+        var last = new UUID((5_000L << 16) | 0x7000L, 0x8000000000000000L);
+        var ps = mock(PreparedStatement.class);
+
+        PgOutboxStore.setCreatedAtRange(ps, 2, List.of(last, first));
+
+        verify(ps).setTimestamp(2, new Timestamp(1_000L));
+        verify(ps).setTimestamp(3, new Timestamp(5_000L));
+    }
+
+    @Test
+    void testCreatedAtRangeOpenForRandomIds() throws SQLException {
+        var ps = mock(PreparedStatement.class);
+
+        PgOutboxStore.setCreatedAtRange(ps, 1, List.of(new UuidV7Generator().newId(), UUID.randomUUID()));
+
+        verify(ps).setTimestamp(1, null);
+        verify(ps).setTimestamp(2, null);
+    }
+
+    @Test
+    void testClaimInterleavesPriorityLevelsByWeight() {
+        var sql = PgOutboxStore.claimSql(OutboxStore.ClaimScope.ALL, new int[] {8, 4, 1});
+
+        assertEquals(3, sql.split("FOR UPDATE SKIP LOCKED", -1).length - 1);
+        assertTrue(sql.contains("SELECT id, 0 AS priority, created_at FROM outbox WHERE category='reply' AND status='NEW'"));
+        assertTrue(sql.contains("SELECT id, 2 AS priority, created_at FROM outbox WHERE category='event' AND status='NEW'"));
+        assertTrue(sql.contains("ORDER BY rn / CASE priority WHEN 0 THEN 8 WHEN 1 THEN 4 WHEN 2 THEN 1 ELSE 1 END, priority LIMIT ?"));
+        assertTrue(sql.contains("FROM c WHERE o.id=c.id AND o.created_at=c.created_at"));
+        assertTrue(sql.endsWith("ORDER BY priority, created_at, id"));
+    }
+
+    @Test
+    void testClaimRepeatsScopeFilterPerLevel() {
+        var scope = new OutboxStore.ClaimScope(Set.of(1), Set.of("command", "event"), Set.of("events.Down"));
+
+        var sql = PgOutboxStore.claimSql(scope, new int[] {8, 4, 1});
+
+        assertTrue(sql.contains("shard = ANY(?) AND topic <> ALL(?) AND category='command' AND "));
+        assertTrue(sql.contains("shard = ANY(?) AND topic <> ALL(?) AND category='event' AND "));
+    }
+
+    @Test
+    void testClaimOnlyScansLevelsOfScopedCategories() {
+        var mq = new OutboxStore.ClaimScope(null, Set.of("command", "reply"), Set.of());
+
+        var sql = PgOutboxStore.claimSql(mq, new int[] {8, 4, 1});
+
+        assertEquals(List.of(0, 1), PgOutboxStore.levels(mq));
+        assertEquals(2, sql.split("FOR UPDATE SKIP LOCKED", -1).length - 1);
+        assertFalse(sql.contains("category='event'"));
+        assertEquals(List.of(2), PgOutboxStore.levels(new OutboxStore.ClaimScope(null, Set.of("event"), Set.of())));
+    }
+}
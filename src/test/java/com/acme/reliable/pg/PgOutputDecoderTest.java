@@ -0,0 +1,139 @@
+package com.acme.reliable.pg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PgOutputDecoderTest {
+
+    private static final String[] OUTBOX_COLUMNS = {
+        "id", "category", "topic", "key", "type", "payload", "headers", "status", "attempts", "priority"};
+
+    private final PgOutputDecoder decoder = new PgOutputDecoder("outbox");
+
+    @Test
+    void testReturnsInsertsOfCommittedTransaction() throws IOException {
+        UUID id = UUID.randomUUID();
+        assertNull(decoder.decode(begin()));
+        assertNull(decoder.decode(relation(16400, "outbox", OUTBOX_COLUMNS)));
+        assertNull(decoder.decode(insert(16400, id.toString(), "reply", "APP.CMD.REPLY.Q", null, "CommandCompleted",
+            "{\"ok\":true}", "{\"correlationId\":\"c-1\"}", "NEW", "0", "0")));
+
+        var txn = decoder.decode(commit(0x1000L, 0x1048L));
+
+        assertNotNull(txn);
+        assertEquals(0x1048L, txn.endLsn());
+        assertEquals(1, txn.rows().size());
+        var row = txn.rows().get(0);
+        assertEquals(id, row.id());
+        assertEquals("reply", row.category());
+        assertEquals("APP.CMD.REPLY.Q", row.topic());
+        assertNull(row.key());
+        assertEquals("{\"ok\":true}", row.payload());
+        assertEquals(Map.of("correlationId", "c-1"), row.headers());
+        assertEquals(0, row.priority());
+    }
+
+    @Test
+    void testIgnoresOtherRelations() throws IOException {
+        decoder.decode(relation(16500, "command", new String[] {"id", "name"}));
+        decoder.decode(begin());
+        decoder.decode(insert(16500, UUID.randomUUID().toString(), "CreateUser"));
+
+        var txn = decoder.decode(commit(0x2000L, 0x2040L));
+
+        assertTrue(txn.rows().isEmpty());
+        assertEquals(0x2040L, txn.endLsn());
+    }
+
+    @Test
+    void testKeepsInsertOrderAndStartsFreshPerTransaction() throws IOException {
+        decoder.decode(relation(16400, "outbox", OUTBOX_COLUMNS));
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        decoder.decode(begin());
+        decoder.decode(insert(16400, first.toString(), "command", "Q", "k", "T", "{}", null, "NEW", "0", "1"));
+        decoder.decode(insert(16400, second.toString(), "event", "events.T", "k", "T", "{}", null, "NEW", "0", "2"));
+        var txn = decoder.decode(commit(0x3000L, 0x3080L));
+        decoder.decode(begin());
+        var next = decoder.decode(commit(0x4000L, 0x4040L));
+
+        assertEquals(first, txn.rows().get(0).id());
+        assertEquals(second, txn.rows().get(1).id());
+        assertEquals(Map.of(), txn.rows().get(0).headers());
+        assertTrue(next.rows().isEmpty());
+    }
+
+    private static ByteBuffer begin() throws IOException {
+        var out = new ByteArrayOutputStream();
+        var data = new DataOutputStream(out);
+        data.writeByte('B');
+        data.writeLong(0x1000L);
+        data.writeLong(0);
+        data.writeInt(42);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static ByteBuffer commit(long commitLsn, long endLsn) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var data = new DataOutputStream(out);
+        data.writeByte('C');
+        data.writeByte(0);
+        data.writeLong(commitLsn);
+        data.writeLong(endLsn);
+        data.writeLong(0);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static ByteBuffer relation(int id, String name, String[] columns) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var data = new DataOutputStream(out);
+        data.writeByte('R');
+        data.writeInt(id);
+        writeString(data, "public");
+        writeString(data, name);
+        data.writeByte('d');
+        data.writeShort(columns.length);
+        for (String column : columns) {
+            data.writeByte(0);
+            writeString(data, column);
+            data.writeInt(25);
+            data.writeInt(-1);
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static ByteBuffer insert(int relationId, String... values) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var data = new DataOutputStream(out);
+        data.writeByte('I');
+        data.writeInt(relationId);
+        data.writeByte('N');
+        data.writeShort(values.length);
+        for (String value : values) {
+            if (value == null) {
+                data.writeByte('n');
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                data.writeByte('t');
+                data.writeInt(bytes.length);
+                data.write(bytes);
+            }
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static void writeString(DataOutputStream data, String s) throws IOException {
+        data.write(s.getBytes(StandardCharsets.UTF_8));
+        data.writeByte(0);
+    }
+}
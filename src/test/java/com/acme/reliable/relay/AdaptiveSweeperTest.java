@@ -0,0 +1,137 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.config.TimeoutConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class AdaptiveSweeperTest {
+
+    private static final OutboxRelay.CategoryGroup GROUP = new OutboxRelay.CategoryGroup("kafka", Set.of("event"));
+
+    private OutboxRelay relay;
+    private TimeoutConfig timeoutConfig;
+    private RelayConfig relayConfig;
+    private AdaptiveSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        relay = mock(OutboxRelay.class);
+        timeoutConfig = new TimeoutConfig();
+        timeoutConfig.setOutboxBatchSize(400);
+        timeoutConfig.setOutboxSweepInterval(Duration.ofMillis(400));
+        relayConfig = new RelayConfig();
+        relayConfig.setSweepEnabled(false);
+        relayConfig.setSweepMinBatchSize(100);
+        relayConfig.setSweepMaxBatchSize(1000);
+        relayConfig.setSweepTargetLatency(Duration.ofMillis(100));
+        relayConfig.setSweepMinInterval(Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (sweeper != null) {
+            sweeper.shutdown();
+        }
+    }
+
+    private AdaptiveSweeper sweeper() {
+        sweeper = new AdaptiveSweeper(relay, GROUP, timeoutConfig, relayConfig);
+        sweeper.start();
+        return sweeper;
+    }
+
+    @Test
+    void testSweepsAgainWhileBatchesComeBackFull() {
+        when(relay.sweep(anyInt(), any())).thenAnswer(inv -> inv.getArgument(0)).thenAnswer(inv -> inv.getArgument(0)).thenReturn(7);
+
+        long delay = sweeper().drain();
+
+        verify(relay, times(3)).sweep(anyInt(), any());
+        assertEquals(50, delay);
+    }
+
+    @Test
+    void testBatchGrowsWhenFastAndShrinksWhenSlow() {
+        var s = sweeper();
+
+        s.record(400, 400, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(800, s.getBatchSize());
+        s.record(800, 800, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(1000, s.getBatchSize());
+
+        s.record(1000, 1000, TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(500, s.getBatchSize());
+        s.record(500, 120, TimeUnit.MILLISECONDS.toNanos(70));
+        assertEquals(500, s.getBatchSize());
+    }
+
+    @Test
+    void testShortBatchDoesNotGrow() {
+        var s = sweeper();
+
+        s.record(400, 10, TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertEquals(400, s.getBatchSize());
+    }
+
+    @Test
+    void testIdleWaitBacksOffUpToSweepInterval() {
+        when(relay.sweep(anyInt(), any())).thenReturn(0);
+        var s = sweeper();
+
+        assertEquals(50, s.drain());
+        assertEquals(100, s.drain());
+        assertEquals(200, s.drain());
+        assertEquals(400, s.drain());
+        assertEquals(400, s.drain());
+
+        when(relay.sweep(anyInt(), any())).thenReturn(3);
+        assertEquals(50, s.drain());
+        assertEquals(0, s.getIdleMillis());
+    }
+
+    @Test
+    void testWakeDrainsInlineWhenLoopDisabled() {
+        when(relay.sweep(anyInt(), any())).thenReturn(0);
+
+        sweeper().wake();
+
+        verify(relay).sweep(400, Set.of("event"));
+    }
+
+    @Test
+    void testLoopSweepsOnWake() {
+        relayConfig.setSweepEnabled(true);
+        timeoutConfig.setOutboxSweepInterval(Duration.ofMinutes(1));
+        relayConfig.setSweepMinInterval(Duration.ofMinutes(1));
+        when(relay.sweep(anyInt(), any())).thenReturn(0);
+
+        var s = sweeper();
+        verify(relay, timeout(1000).times(1)).sweep(anyInt(), any());
+
+        s.wake();
+        verify(relay, timeout(1000).times(2)).sweep(anyInt(), any());
+    }
+
+    @Test
+    void testLoopSurvivesErrorFromSweep() {
+        relayConfig.setSweepEnabled(true);
+        relayConfig.setSweepMinInterval(Duration.ofMillis(10));
+        when(relay.sweep(anyInt(), any())).thenThrow(new AssertionError("boom")).thenReturn(0);
+
+        sweeper();
+
+        verify(relay, timeout(1000).atLeast(2)).sweep(anyInt(), any());
+    }
+}
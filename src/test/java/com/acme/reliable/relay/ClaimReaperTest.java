@@ -0,0 +1,62 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.spi.OutboxStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ClaimReaperTest {
+
+    private OutboxStore store;
+    private MeterRegistry registry;
+    private ClaimReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(OutboxStore.class);
+        RelayConfig config = new RelayConfig();
+        config.setReaperBatchSize(100);
+        registry = new SimpleMeterRegistry();
+        reaper = new ClaimReaper(store, config, registry);
+    }
+
+    @Test
+    void testReapsInBatchesUntilDrained() {
+        when(store.reapExpiredClaims(100)).thenReturn(100, 100, 37);
+
+        reaper.reapOnce();
+
+        verify(store, times(3)).reapExpiredClaims(100);
+        assertEquals(237, reaper.getLastRunReaped());
+        assertEquals(237, reaper.getReaped());
+        assertEquals(237.0, registry.get("outbox.reaper.reaped").functionCounter().count());
+        assertEquals(1.0, registry.get("outbox.reaper.runs").functionCounter().count());
+    }
+
+    @Test
+    void testBoundsBatchesPerRun() {
+        when(store.reapExpiredClaims(100)).thenReturn(100);
+
+        reaper.reapOnce();
+
+        verify(store, times(20)).reapExpiredClaims(100);
+        assertEquals(2000, reaper.getLastRunReaped());
+    }
+
+    @Test
+    void testAccumulatesAcrossRunsAndSurvivesFailures() {
+        when(store.reapExpiredClaims(100)).thenReturn(5).thenThrow(new RuntimeException("DB down"));
+
+        reaper.reapOnce();
+        reaper.reapOnce();
+
+        assertEquals(5, reaper.getReaped());
+        assertEquals(0, reaper.getLastRunReaped());
+        assertEquals(2, reaper.getRuns());
+    }
+}
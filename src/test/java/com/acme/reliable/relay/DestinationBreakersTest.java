@@ -0,0 +1,76 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DestinationBreakersTest {
+
+    private long now;
+    private DestinationBreakers breakers;
+
+    @BeforeEach
+    void setUp() {
+        RelayConfig config = new RelayConfig();
+        config.setBreakerFailureThreshold(2);
+        config.setBreakerOpenDuration(Duration.ofSeconds(10));
+        breakers = new DestinationBreakers(config, () -> now);
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        breakers.record("events.A", false);
+        assertTrue(breakers.allow("events.A"));
+
+        breakers.record("events.A", false);
+
+        assertFalse(breakers.allow("events.A"));
+        assertEquals(Set.of("events.A"), breakers.pausedDestinations());
+        assertTrue(breakers.allow("APP.CMD.REPLY.Q"));
+    }
+
+    @Test
+    void testSuccessResetsFailureCount() {
+        breakers.record("events.A", false);
+        breakers.record("events.A", true);
+        breakers.record("events.A", false);
+
+        assertTrue(breakers.allow("events.A"));
+    }
+
+    @Test
+    void testHalfOpenProbeClosesOnDelivery() {
+        breakers.record("events.A", false);
+        breakers.record("events.A", false);
+        now += Duration.ofSeconds(10).toNanos();
+
+        assertTrue(breakers.pausedDestinations().isEmpty());
+        assertTrue(breakers.allow("events.A"));
+        assertFalse(breakers.allow("events.A"), "only one probe at a time");
+        assertEquals(Set.of("events.A"), breakers.pausedDestinations());
+
+        breakers.record("events.A", true);
+
+        assertTrue(breakers.allow("events.A"));
+        assertEquals(Map.of("events.A", "CLOSED"), breakers.getStates());
+    }
+
+    @Test
+    void testFailedProbeReopens() {
+        breakers.record("events.A", false);
+        breakers.record("events.A", false);
+        now += Duration.ofSeconds(10).toNanos();
+        assertTrue(breakers.allow("events.A"));
+
+        breakers.record("events.A", false);
+
+        assertFalse(breakers.allow("events.A"));
+        assertEquals(Map.of("events.A", "OPEN"), breakers.getStates());
+    }
+}
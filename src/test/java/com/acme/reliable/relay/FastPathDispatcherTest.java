@@ -0,0 +1,137 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.spi.OutboxStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FastPathDispatcherTest {
+
+    private final OutboxRelay relay = mock(OutboxRelay.class);
+    private final SweepTrigger sweepTrigger = mock(SweepTrigger.class);
+    private FastPathDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    private FastPathDispatcher dispatcher(int capacity) {
+        RelayConfig config = new RelayConfig();
+        config.setFastPathQueueCapacity(capacity);
+        config.setFastPathThreads(1);
+        var started = new FastPathDispatcher(relay, sweepTrigger, config, new SimpleMeterRegistry());
+        started.onApplicationEvent(null);
+        return started;
+    }
+
+    private static OutboxStore.OutboxRow row() {
+        return new OutboxStore.OutboxRow(UUID.randomUUID(), "event", "events.Test", "k", "T", "{}", Map.of(), 0);
+    }
+
+    @Test
+    void testPublishesSubmittedRowsOffTheCallingThread() {
+        dispatcher = dispatcher(100);
+        var reply = row();
+        var event = row();
+
+        dispatcher.submit(List.of(reply, event));
+
+        verify(relay, timeout(2000).atLeastOnce()).publishNow(any());
+        verify(sweepTrigger, never()).wakeAfter(anyLong());
+    }
+
+    @Test
+    void testCountsOnlyRowsTheFastPathDelivered() {
+        var swept = row();
+        // The relay skips rows a sweep claimed first
+        when(relay.publishNow(any())).thenAnswer(inv -> (int) inv.<List<OutboxStore.OutboxRow>>getArgument(0)
+            .stream().filter(r -> r != swept).count());
+        dispatcher = dispatcher(100);
+
+        dispatcher.submit(List.of(swept, row()));
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (dispatcher.getDispatched() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        verify(relay, timeout(2000).atLeastOnce()).publishNow(any());
+        assertEquals(1, dispatcher.getDispatched());
+    }
+
+    @Test
+    void testDropsToSweepWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            publishing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 0;
+        }).when(relay).publishNow(any());
+        dispatcher = dispatcher(1);
+
+        dispatcher.submit(List.of(row()));
+        assertTrue(publishing.await(2, TimeUnit.SECONDS));
+        dispatcher.submit(List.of(row(), row()));
+
+        assertEquals(1, dispatcher.getQueueDepth());
+        assertEquals(1, dispatcher.getDroppedToSweep());
+        verify(sweepTrigger).wakeAfter(0);
+        release.countDown();
+    }
+
+    @Test
+    void testCountsFailedBatches() {
+        doThrow(new RuntimeException("DB down")).when(relay).publishNow(any());
+        dispatcher = dispatcher(100);
+
+        dispatcher.submit(List.of(row()));
+
+        verify(relay, timeout(2000)).publishNow(any());
+        long deadline = System.currentTimeMillis() + 2000;
+        while (dispatcher.getFailedBatches() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1, dispatcher.getFailedBatches());
+        assertEquals(0, dispatcher.getDispatched());
+    }
+
+    @Test
+    void testLeavesRowsToReplicationStreamUnderReplicationEngine() throws InterruptedException {
+        RelayConfig config = new RelayConfig();
+        config.setEngine(RelayConfig.Engine.REPLICATION);
+        dispatcher = new FastPathDispatcher(relay, sweepTrigger, config, new SimpleMeterRegistry());
+        dispatcher.onApplicationEvent(null);
+
+        dispatcher.submit(List.of(row(), row()));
+        Thread.sleep(100);
+
+        assertEquals(0, dispatcher.getQueueDepth());
+        verify(relay, never()).publishNow(any());
+        verify(sweepTrigger, never()).wakeAfter(anyLong());
+    }
+
+    @Test
+    void testLeavesRowsToSweepUntilStarted() throws InterruptedException {
+        dispatcher = new FastPathDispatcher(relay, sweepTrigger, new RelayConfig(), new SimpleMeterRegistry());
+
+        dispatcher.submit(List.of(row(), row()));
+        Thread.sleep(100);
+
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertEquals(2, dispatcher.getDroppedToSweep());
+        verify(relay, never()).publishNow(any());
+        verify(sweepTrigger).wakeAfter(0);
+    }
+}
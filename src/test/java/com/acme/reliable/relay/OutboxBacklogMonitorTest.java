@@ -0,0 +1,58 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.spi.OutboxStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OutboxBacklogMonitorTest {
+
+    private final OutboxStore store = mock(OutboxStore.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testExposesSampledBacklogPerCategory() {
+        var monitor = new OutboxBacklogMonitor(store, new RelayConfig(), registry);
+        when(store.backlog()).thenReturn(List.of(
+            new OutboxStore.Backlog("event", 1200, 45_000),
+            new OutboxStore.Backlog("reply", 3, 200)));
+
+        monitor.sample();
+
+        assertEquals(1200.0, registry.get("outbox.backlog.rows").tag("category", "event").gauge().value());
+        assertEquals(45.0, registry.get("outbox.backlog.oldest.age").tag("category", "event").timeGauge().value(TimeUnit.SECONDS));
+        assertEquals(0.0, registry.get("outbox.backlog.rows").tag("category", "command").gauge().value());
+    }
+
+    @Test
+    void testClearsCategoriesThatDrained() {
+        var monitor = new OutboxBacklogMonitor(store, new RelayConfig(), registry);
+        when(store.backlog())
+            .thenReturn(List.of(new OutboxStore.Backlog("command", 10, 5_000)))
+            .thenReturn(List.of());
+
+        monitor.sample();
+        monitor.sample();
+
+        assertEquals(0, monitor.getBacklogRows("command"));
+        assertEquals(0, monitor.getOldestAgeMillis("command"));
+    }
+
+    @Test
+    void testSkipsSamplingUnderReplicationEngine() {
+        var config = new RelayConfig();
+        config.setEngine(RelayConfig.Engine.REPLICATION);
+        var monitor = new OutboxBacklogMonitor(store, config, registry);
+
+        monitor.sample();
+
+        verifyNoInteractions(store);
+    }
+}
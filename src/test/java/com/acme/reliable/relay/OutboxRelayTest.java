@@ -1,26 +1,48 @@
 package com.acme.reliable.relay;
 
+import com.acme.reliable.config.RelayConfig;
 import com.acme.reliable.config.TimeoutConfig;
+import com.acme.reliable.core.Tracing;
 import com.acme.reliable.spi.CommandQueue;
 import com.acme.reliable.spi.EventPublisher;
 import com.acme.reliable.spi.OutboxStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 class OutboxRelayTest {
 
+    private static final int BATCH = 2000;
+
     private OutboxStore outboxStore;
     private CommandQueue commandQueue;
     private EventPublisher eventPublisher;
     private TimeoutConfig timeoutConfig;
+    private ShardOwnership shardOwnership;
+    private DestinationBreakers breakers;
+    private MeterRegistry registry;
+    private RelayMetrics metrics;
+    private Tracing tracing;
     private OutboxRelay outboxRelay;
 
     @BeforeEach
@@ -29,10 +51,30 @@ class OutboxRelayTest {
         commandQueue = mock(CommandQueue.class);
         eventPublisher = mock(EventPublisher.class);
         timeoutConfig = mock(TimeoutConfig.class);
+        shardOwnership = mock(ShardOwnership.class);
+        breakers = new DestinationBreakers(new RelayConfig());
+        registry = new SimpleMeterRegistry();
+        metrics = new RelayMetrics(registry);
+        tracing = Tracing.noop();
         when(timeoutConfig.getMaxBackoffMillis()).thenReturn(300_000L);
-        when(timeoutConfig.getOutboxBatchSize()).thenReturn(2000);
 
-        outboxRelay = new OutboxRelay(outboxStore, commandQueue, eventPublisher, timeoutConfig);
+        // The default batch send delegates to send(), so per-message verifications keep working
+        when(commandQueue.sendAll(any())).thenCallRealMethod();
+        when(eventPublisher.publishAsync(any(), any(), any(), any()))
+            .thenAnswer(inv -> CompletableFuture.completedFuture(new EventPublisher.Ack(inv.getArgument(0), 0, 0L)));
+
+        outboxRelay = new OutboxRelay(outboxStore, commandQueue, eventPublisher, shardOwnership, breakers, metrics, tracing, timeoutConfig, relayConfig(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxRelay.shutdown();
+    }
+
+    private static RelayConfig relayConfig(int lanes) {
+        RelayConfig config = new RelayConfig();
+        config.setLanes(lanes);
+        return config;
     }
 
     @Test
@@ -49,13 +91,13 @@ class OutboxRelayTest {
             0
         );
 
-        when(outboxStore.claimOne(outboxId)).thenReturn(Optional.of(row));
+        when(outboxStore.claimAllIfNew(eq(List.of(outboxId)), any())).thenReturn(Set.of(outboxId));
 
-        outboxRelay.publishNow(outboxId);
+        outboxRelay.publishNow(List.of(row));
 
-        verify(outboxStore).claimOne(outboxId);
+        verify(outboxStore).claimAllIfNew(eq(List.of(outboxId)), any());
         verify(commandQueue).send("APP.CMD.Test.Q", "{\"data\":\"test\"}", row.headers());
-        verify(outboxStore).markPublished(outboxId);
+        verify(outboxStore).markAllPublished(List.of(outboxId));
     }
 
     @Test
@@ -72,12 +114,14 @@ class OutboxRelayTest {
             0
         );
 
-        when(outboxStore.claimOne(outboxId)).thenReturn(Optional.of(row));
+        when(outboxStore.claimAllIfNew(eq(List.of(outboxId)), any())).thenReturn(Set.of(outboxId));
 
-        outboxRelay.publishNow(outboxId);
+        outboxRelay.publishNow(List.of(row));
 
         verify(commandQueue).send("REPLY.Q", "{\"result\":\"ok\"}", row.headers());
-        verify(outboxStore).markPublished(outboxId);
+        assertEquals(1.0, registry.get("outbox.published").tag("path", RelayMetrics.FAST).counter().count());
+        assertEquals(0.0, registry.get("outbox.published").tag("path", RelayMetrics.SWEEP).counter().count());
+        verify(outboxStore).markAllPublished(List.of(outboxId));
     }
 
     @Test
@@ -94,26 +138,28 @@ class OutboxRelayTest {
             0
         );
 
-        when(outboxStore.claimOne(outboxId)).thenReturn(Optional.of(row));
+        when(outboxStore.claimAllIfNew(eq(List.of(outboxId)), any())).thenReturn(Set.of(outboxId));
 
-        outboxRelay.publishNow(outboxId);
+        outboxRelay.publishNow(List.of(row));
 
-        verify(eventPublisher).publish("events.UserCreated", "user-123", "{\"userId\":\"123\"}", Map.of());
-        verify(outboxStore).markPublished(outboxId);
+        verify(eventPublisher).publishAsync("events.UserCreated", "user-123", "{\"userId\":\"123\"}", Map.of());
+        verify(outboxStore).markAllPublished(List.of(outboxId));
     }
 
     @Test
-    void testPublishNowNotFound() {
+    void testPublishNowAlreadyClaimed() {
         UUID outboxId = UUID.randomUUID();
+        OutboxStore.OutboxRow row = new OutboxStore.OutboxRow(
+            outboxId, "command", "APP.CMD.Test.Q", "key-1", "CommandRequested", "{}", Map.of(), 0);
 
-        when(outboxStore.claimOne(outboxId)).thenReturn(Optional.empty());
+        when(outboxStore.claimAllIfNew(any(), any())).thenReturn(Set.of());
 
-        outboxRelay.publishNow(outboxId);
+        assertEquals(0, outboxRelay.publishNow(List.of(row)));
 
-        verify(outboxStore).claimOne(outboxId);
+        verify(outboxStore).claimAllIfNew(eq(List.of(outboxId)), any());
         verify(commandQueue, never()).send(any(), any(), any());
-        verify(eventPublisher, never()).publish(any(), any(), any(), any());
-        verify(outboxStore, never()).markPublished(any());
+        verify(eventPublisher, never()).publishAsync(any(), any(), any(), any());
+        verify(outboxStore, never()).markAllPublished(any());
     }
 
     @Test
@@ -130,14 +176,32 @@ class OutboxRelayTest {
             2 // 2 previous attempts
         );
 
-        when(outboxStore.claimOne(outboxId)).thenReturn(Optional.of(row));
+        when(outboxStore.claimAllIfNew(eq(List.of(outboxId)), any())).thenReturn(Set.of(outboxId));
         doThrow(new RuntimeException("Network error")).when(commandQueue).send(any(), any(), any());
 
-        outboxRelay.publishNow(outboxId);
+        assertEquals(0, outboxRelay.publishNow(List.of(row)));
 
         verify(commandQueue).send(any(), any(), any());
-        verify(outboxStore, never()).markPublished(any());
-        verify(outboxStore).reschedule(eq(outboxId), anyLong(), contains("Network error"));
+        verify(outboxStore, never()).markAllPublished(any());
+        verify(outboxStore).rescheduleAll(argThat(r ->
+            r.size() == 1 && r.get(0).id().equals(outboxId) && r.get(0).error().contains("Network error")));
+    }
+
+    @Test
+    void testPublishNowSkipsRowsSweptFirst() {
+        UUID swept = UUID.randomUUID();
+        UUID mine = UUID.randomUUID();
+        var rows = List.of(
+            new OutboxStore.OutboxRow(swept, "reply", "REPLY.Q", "k", "T", "{}", Map.of(), 0),
+            new OutboxStore.OutboxRow(mine, "event", "events.Test", "k", "T", "{}", Map.of(), 0));
+
+        when(outboxStore.claimAllIfNew(eq(List.of(swept, mine)), any())).thenReturn(Set.of(mine));
+
+        assertEquals(1, outboxRelay.publishNow(rows));
+
+        verify(commandQueue, never()).send(any(), any(), any());
+        verify(eventPublisher).publishAsync("events.Test", "k", "{}", Map.of());
+        verify(outboxStore).markAllPublished(List.of(mine));
     }
 
     @Test
@@ -150,15 +214,173 @@ class OutboxRelayTest {
             new OutboxStore.OutboxRow(id2, "event", "events.Test", "k2", "T2", "{}", Map.of(), 0)
         );
 
-        when(outboxStore.claim(eq(2000), any())).thenReturn(rows);
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(rows);
 
-        outboxRelay.sweepOnce();
+        outboxRelay.sweep(BATCH, null);
 
-        verify(outboxStore).claim(eq(2000), any());
+        verify(outboxStore).claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class));
         verify(commandQueue).send("Q1", "{}", Map.of());
-        verify(eventPublisher).publish("events.Test", "k2", "{}", Map.of());
-        verify(outboxStore).markPublished(id1);
-        verify(outboxStore).markPublished(id2);
+        verify(eventPublisher).publishAsync("events.Test", "k2", "{}", Map.of());
+        verify(outboxStore).markAllPublished(List.of(id1, id2));
+    }
+
+    @Test
+    void testSweepPublishesWholeBatchBeforeFinalizing() {
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+
+        List<OutboxStore.OutboxRow> rows = List.of(
+            new OutboxStore.OutboxRow(id1, "command", "Q1", "k1", "T1", "{}", Map.of(), 0),
+            new OutboxStore.OutboxRow(id2, "command", "Q2", "k2", "T2", "{}", Map.of(), 1)
+        );
+
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(rows);
+        doThrow(new RuntimeException("Queue full")).when(commandQueue).send(eq("Q2"), any(), any());
+
+        outboxRelay.sweep(BATCH, null);
+
+        InOrder inOrder = inOrder(commandQueue, outboxStore);
+        inOrder.verify(outboxStore).claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class));
+        inOrder.verify(commandQueue).send("Q1", "{}", Map.of());
+        inOrder.verify(commandQueue).send("Q2", "{}", Map.of());
+        inOrder.verify(outboxStore).markAllPublished(List.of(id1));
+        inOrder.verify(outboxStore).rescheduleAll(List.of(
+            new OutboxStore.Reschedule(id2, 4000L, "java.lang.RuntimeException: Queue full")));
+        assertEquals(1.0, registry.get("outbox.published").tag("path", RelayMetrics.SWEEP).counter().count());
+        assertEquals(1.0, registry.get("outbox.reschedules").tag("exception", "RuntimeException").counter().count());
+        assertEquals(1, registry.get("outbox.claim").tag("path", RelayMetrics.SWEEP).timer().count());
+        assertEquals(2.0, registry.get("outbox.batch.size").tag("path", RelayMetrics.SWEEP).summary().totalAmount());
+    }
+
+    @Test
+    void testSweepPublishesInClaimOrder() {
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+
+        // The store returns rows by priority, then creation; rows with one key share a lane and keep that order
+        List<OutboxStore.OutboxRow> rows = List.of(
+            new OutboxStore.OutboxRow(id2, "reply", "Q2", "k1", "T2", "{}", Map.of(), 0, OutboxStore.OutboxRow.PRIORITY_HIGH),
+            new OutboxStore.OutboxRow(id1, "command", "Q1", "k1", "T1", "{}", Map.of(), 0)
+        );
+
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(rows);
+
+        outboxRelay.sweep(BATCH, null);
+
+        InOrder inOrder = inOrder(commandQueue);
+        inOrder.verify(commandQueue).send("Q2", "{}", Map.of());
+        inOrder.verify(commandQueue).send("Q1", "{}", Map.of());
+        verify(outboxStore).markAllPublished(List.of(id2, id1));
+    }
+
+    @Test
+    void testShardedSweepClaimsOwnedShardsOnly() {
+        when(shardOwnership.isEnabled()).thenReturn(true);
+        when(shardOwnership.ownedShards()).thenReturn(Set.of(3, 7));
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(List.of());
+
+        outboxRelay.sweep(BATCH, null);
+
+        verify(outboxStore).claim(eq(BATCH), any(), argThat((OutboxStore.ClaimScope scope) -> Set.of(3, 7).equals(scope.shards())));
+        verify(outboxStore, never()).claim(anyInt(), any(), argThat((OutboxStore.ClaimScope scope) -> scope.shards() == null));
+    }
+
+    @Test
+    void testShardedSweepSkipsWhenNoShardsOwned() {
+        when(shardOwnership.isEnabled()).thenReturn(true);
+        when(shardOwnership.ownedShards()).thenReturn(Set.of());
+
+        outboxRelay.sweep(BATCH, null);
+
+        verify(outboxStore, never()).claim(anyInt(), any(), any(OutboxStore.ClaimScope.class));
+    }
+
+    @Test
+    void testSweepWithNothingClaimed() {
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(List.of());
+
+        outboxRelay.sweep(BATCH, null);
+
+        verifyNoInteractions(commandQueue, eventPublisher);
+        verify(outboxStore, never()).markAllPublished(any());
+    }
+
+    @Test
+    void testSweepSendsMqRowsAsOneBatch() {
+        UUID cmd = UUID.randomUUID();
+        UUID evt = UUID.randomUUID();
+        UUID reply = UUID.randomUUID();
+
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(List.of(
+            new OutboxStore.OutboxRow(reply, "reply", "REPLY.Q", "k3", "T3", "{\"b\":2}", Map.of("correlationId", "c"), 0),
+            new OutboxStore.OutboxRow(cmd, "command", "Q1", "k1", "T1", "{\"a\":1}", Map.of(), 0),
+            new OutboxStore.OutboxRow(evt, "event", "events.Test", "k2", "T2", "{}", Map.of(), 0)
+        ));
+
+        outboxRelay.sweep(BATCH, null);
+
+        // Claimed replies outrank commands, so they lead the batch
+        verify(commandQueue, times(1)).sendAll(List.of(
+            new CommandQueue.OutgoingMessage("REPLY.Q", "{\"b\":2}", Map.of("correlationId", "c")),
+            new CommandQueue.OutgoingMessage("Q1", "{\"a\":1}", Map.of())
+        ));
+        verify(outboxStore).markAllPublished(List.of(reply, cmd, evt));
+    }
+
+    @Test
+    void testSweepReschedulesOnlyFailedMessagesOfMqBatch() {
+        UUID ok = UUID.randomUUID();
+        UUID failed = UUID.randomUUID();
+
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(List.of(
+            new OutboxStore.OutboxRow(ok, "command", "Q1", "k1", "T", "{}", Map.of(), 0),
+            new OutboxStore.OutboxRow(failed, "command", "Q2", "k2", "T", "{}", Map.of(), 0)
+        ));
+        doReturn(Map.of(1, new RuntimeException("MQRC_Q_FULL"))).when(commandQueue).sendAll(any());
+
+        outboxRelay.sweep(BATCH, null);
+
+        verify(outboxStore).markAllPublished(List.of(ok));
+        verify(outboxStore).rescheduleAll(argThat(r ->
+            r.size() == 1 && r.get(0).id().equals(failed) && r.get(0).error().contains("MQRC_Q_FULL")));
+    }
+
+    @Test
+    void testSweepMarksOnlyAcknowledgedEvents() {
+        UUID acked = UUID.randomUUID();
+        UUID nacked = UUID.randomUUID();
+
+        List<OutboxStore.OutboxRow> rows = List.of(
+            new OutboxStore.OutboxRow(acked, "event", "events.A", "k1", "T", "{}", Map.of(), 0),
+            new OutboxStore.OutboxRow(nacked, "event", "events.B", "k2", "T", "{}", Map.of(), 0)
+        );
+
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(rows);
+        when(eventPublisher.publishAsync(eq("events.B"), any(), any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("NotEnoughReplicas")));
+
+        outboxRelay.sweep(BATCH, null);
+
+        verify(outboxStore).markAllPublished(List.of(acked));
+        verify(outboxStore).rescheduleAll(argThat(r ->
+            r.size() == 1 && r.get(0).id().equals(nacked) && r.get(0).error().contains("NotEnoughReplicas")));
+    }
+
+    @Test
+    void testSweepReschedulesEventsWithoutAckInTime() {
+        UUID id = UUID.randomUUID();
+        RelayConfig relayConfig = relayConfig(1);
+        relayConfig.setAckTimeout(java.time.Duration.ofMillis(50));
+        outboxRelay = new OutboxRelay(outboxStore, commandQueue, eventPublisher, shardOwnership, breakers, metrics, tracing, timeoutConfig, relayConfig);
+
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(List.of(
+            new OutboxStore.OutboxRow(id, "event", "events.A", "k1", "T", "{}", Map.of(), 0)));
+        when(eventPublisher.publishAsync(any(), any(), any(), any())).thenReturn(new CompletableFuture<>());
+
+        outboxRelay.sweep(BATCH, null);
+
+        verify(outboxStore, never()).markAllPublished(any());
+        verify(outboxStore).rescheduleAll(argThat(r -> r.size() == 1 && r.get(0).id().equals(id)));
     }
 
     @Test
@@ -177,12 +399,191 @@ class OutboxRelayTest {
             5
         );
 
-        when(outboxStore.claimOne(outboxId)).thenReturn(Optional.of(row));
+        when(outboxStore.claimAllIfNew(eq(List.of(outboxId)), any())).thenReturn(Set.of(outboxId));
         doThrow(new RuntimeException("Error")).when(commandQueue).send(any(), any(), any());
 
-        outboxRelay.publishNow(outboxId);
+        outboxRelay.publishNow(List.of(row));
 
         // With 5 attempts, backoff should be min(300000, 2^6 * 1000) = 64000
-        verify(outboxStore).reschedule(eq(outboxId), eq(64000L), any());
+        verify(outboxStore).rescheduleAll(List.of(
+            new OutboxStore.Reschedule(outboxId, 64000L, "java.lang.RuntimeException: Error")));
+    }
+
+    @Test
+    void testLanesKeepPerKeyOrder() {
+        outboxRelay.shutdown();
+        outboxRelay = new OutboxRelay(outboxStore, commandQueue, eventPublisher, shardOwnership, breakers, metrics, tracing, timeoutConfig, relayConfig(4));
+        List<OutboxStore.OutboxRow> rows = new java.util.ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(new OutboxStore.OutboxRow(UUID.randomUUID(), "command", "Q", "same-key", "T", "{\"i\":" + i + "}", Map.of(), 0));
+        }
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(rows);
+
+        outboxRelay.sweep(BATCH, null);
+
+        InOrder inOrder = inOrder(commandQueue);
+        for (int i = 0; i < 5; i++) {
+            inOrder.verify(commandQueue).send("Q", "{\"i\":" + i + "}", Map.of());
+        }
+        verify(outboxStore).markAllPublished(argThat(ids -> ids.size() == 5));
+    }
+
+    @Test
+    void testLanesPublishDifferentKeysConcurrently() throws InterruptedException {
+        outboxRelay.shutdown();
+        outboxRelay = new OutboxRelay(outboxStore, commandQueue, eventPublisher, shardOwnership, breakers, metrics, tracing, timeoutConfig, relayConfig(2));
+        String slowKey = keyForLane(0);
+        String fastKey = keyForLane(1);
+        UUID slow = UUID.randomUUID();
+        UUID fast = UUID.randomUUID();
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(List.of(
+            new OutboxStore.OutboxRow(slow, "command", "SLOW.Q", slowKey, "T", "{}", Map.of(), 0),
+            new OutboxStore.OutboxRow(fast, "command", "FAST.Q", fastKey, "T", "{}", Map.of(), 0)));
+
+        // The slow lane only finishes once the other lane has sent, which a single thread could never do
+        CountDownLatch fastSent = new CountDownLatch(1);
+        doAnswer(inv -> {
+            assertTrue(fastSent.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(commandQueue).send(eq("SLOW.Q"), any(), any());
+        doAnswer(inv -> {
+            fastSent.countDown();
+            return null;
+        }).when(commandQueue).send(eq("FAST.Q"), any(), any());
+
+        outboxRelay.sweep(BATCH, null);
+
+        verify(outboxStore).markAllPublished(argThat(ids -> ids.containsAll(List.of(slow, fast))));
+        assertArrayEquals(new int[] {0, 0}, outboxRelay.getLaneQueueDepths("mq"));
+    }
+
+    @Test
+    void testOpenCircuitExcludesDestinationFromClaim() {
+        for (int i = 0; i < 3; i++) {
+            breakers.record("events.Down", false);
+        }
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(List.of());
+
+        outboxRelay.sweep(BATCH, null);
+
+        verify(outboxStore).claim(eq(BATCH), any(),
+            argThat((OutboxStore.ClaimScope scope) -> scope.pausedTopics().equals(Set.of("events.Down"))));
+    }
+
+    @Test
+    void testRowsForOpenCircuitAreNotSent() {
+        for (int i = 0; i < 3; i++) {
+            breakers.record("events.Down", false);
+        }
+        UUID blocked = UUID.randomUUID();
+        UUID sent = UUID.randomUUID();
+        when(outboxStore.claimAllIfNew(eq(List.of(sent)), any())).thenReturn(Set.of(sent));
+
+        outboxRelay.publishNow(List.of(
+            new OutboxStore.OutboxRow(blocked, "event", "events.Down", "k1", "T", "{}", Map.of(), 0),
+            new OutboxStore.OutboxRow(sent, "event", "events.Up", "k2", "T", "{}", Map.of(), 0)));
+
+        // The blocked row is never claimed, so it stays NEW for a sweep once the circuit closes
+        verify(outboxStore).claimAllIfNew(eq(List.of(sent)), any());
+        verify(eventPublisher, never()).publishAsync(eq("events.Down"), any(), any(), any());
+        verify(outboxStore).markAllPublished(List.of(sent));
+        verify(outboxStore, never()).rescheduleAll(any());
+    }
+
+    @Test
+    void testRowsBlockedAfterClaimAreReleasedWithoutAttempt() {
+        UUID blocked = UUID.randomUUID();
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenAnswer(inv -> {
+            // The circuit opens between the claim and the publish
+            for (int i = 0; i < 3; i++) {
+                breakers.record("events.Down", false);
+            }
+            return List.of(new OutboxStore.OutboxRow(blocked, "event", "events.Down", "k1", "T", "{}", Map.of(), 0));
+        });
+
+        outboxRelay.sweep(BATCH, null);
+
+        verify(eventPublisher, never()).publishAsync(any(), any(), any(), any());
+        verify(outboxStore).releaseAll(List.of(blocked));
+        verify(outboxStore, never()).rescheduleAll(any());
+        assertTrue(registry.find("outbox.reschedules").counters().isEmpty());
+    }
+
+    @Test
+    void testRepeatedFailuresOpenCircuit() {
+        when(eventPublisher.publishAsync(eq("events.Down"), any(), any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker unavailable")));
+        UUID id = UUID.randomUUID();
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(List.of(
+            new OutboxStore.OutboxRow(id, "event", "events.Down", "k", "T", "{}", Map.of(), 0)));
+
+        for (int i = 0; i < 3; i++) {
+            outboxRelay.sweep(BATCH, null);
+        }
+
+        assertEquals(Set.of("events.Down"), breakers.pausedDestinations());
+    }
+
+    @Test
+    void testKafkaStallDoesNotHoldUpMqRows() {
+        outboxRelay.shutdown();
+        outboxRelay = new OutboxRelay(outboxStore, commandQueue, eventPublisher, shardOwnership, breakers, metrics, tracing, timeoutConfig, relayConfig(2));
+        UUID cmd = UUID.randomUUID();
+        UUID evt = UUID.randomUUID();
+        when(outboxStore.claim(eq(BATCH), any(), any(OutboxStore.ClaimScope.class))).thenReturn(List.of(
+            new OutboxStore.OutboxRow(evt, "event", "events.A", "same-key", "T", "{}", Map.of(), 0),
+            new OutboxStore.OutboxRow(cmd, "command", "Q1", "same-key", "T", "{}", Map.of(), 0)));
+
+        // Same key, so the same lane index; the event only gets through once the command was sent elsewhere
+        CountDownLatch commandSent = new CountDownLatch(1);
+        when(eventPublisher.publishAsync(eq("events.A"), any(), any(), any())).thenAnswer(inv -> {
+            assertTrue(commandSent.await(5, TimeUnit.SECONDS));
+            return CompletableFuture.completedFuture(new EventPublisher.Ack("events.A", 0, 0L));
+        });
+        doAnswer(inv -> {
+            commandSent.countDown();
+            return null;
+        }).when(commandQueue).send(eq("Q1"), any(), any());
+
+        outboxRelay.sweep(BATCH, null);
+
+        verify(outboxStore).markAllPublished(argThat(ids -> ids.containsAll(List.of(cmd, evt))));
+    }
+
+    @Test
+    void testPublishContinuesTraceStoredInRow() {
+        var exporter = InMemorySpanExporter.create();
+        var tracer = new Tracing(OpenTelemetrySdk.builder()
+            .setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter)).build())
+            .build());
+        outboxRelay.shutdown();
+        outboxRelay = new OutboxRelay(outboxStore, commandQueue, eventPublisher, shardOwnership, breakers, metrics, tracer, timeoutConfig, relayConfig(1));
+        String traceId = "0af7651916cd43dd8448eb211c80319c";
+        String parentId = "b7ad6b7169203331";
+        UUID id = UUID.randomUUID();
+        var row = new OutboxStore.OutboxRow(id, "event", "events.A", "k", "T", "{}",
+            Map.of("traceparent", "00-" + traceId + "-" + parentId + "-01", "commandId", "c-1"), 0);
+        when(outboxStore.claimAllIfNew(eq(List.of(id)), any())).thenReturn(Set.of(id));
+
+        outboxRelay.publishNow(List.of(row));
+
+        var spans = exporter.getFinishedSpanItems();
+        assertEquals(1, spans.size());
+        var producer = spans.get(0);
+        assertEquals("publish events.A", producer.getName());
+        assertEquals(SpanKind.PRODUCER, producer.getKind());
+        assertEquals(traceId, producer.getTraceId());
+        assertEquals(parentId, producer.getParentSpanId());
+        // The consumer becomes a child of the producer span, not of the span that wrote the row
+        verify(eventPublisher).publishAsync("events.A", "k", "{}", Map.of(
+            "traceparent", "00-" + traceId + "-" + producer.getSpanId() + "-01", "commandId", "c-1"));
+    }
+
+    private String keyForLane(int lane) {
+        for (int i = 0; ; i++) {
+            if (outboxRelay.laneOf("key-" + i) == lane) {
+                return "key-" + i;
+            }
+        }
     }
 }
@@ -0,0 +1,73 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import com.acme.reliable.spi.ShardLeaseStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ShardOwnershipTest {
+
+    private ShardLeaseStore store;
+    private ShardOwnership ownership;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(ShardLeaseStore.class);
+        RelayConfig config = new RelayConfig();
+        config.setNodeId("node-a");
+        ownership = new ShardOwnership(store, config);
+        when(store.shardCount()).thenReturn(8);
+    }
+
+    @Test
+    void testSingleNodeTakesAllShards() {
+        when(store.heartbeat(eq("node-a"), anyLong())).thenReturn(1);
+        when(store.renew(eq("node-a"), anyLong())).thenReturn(Set.of());
+        when(store.acquire(eq("node-a"), eq(8), anyLong())).thenReturn(Set.of(0, 1, 2, 3, 4, 5, 6, 7));
+
+        ownership.rebalance();
+
+        assertEquals(8, ownership.ownedShards().size());
+    }
+
+    @Test
+    void testReleasesSurplusWhenNodeJoins() {
+        when(store.heartbeat(eq("node-a"), anyLong())).thenReturn(2);
+        when(store.renew(eq("node-a"), anyLong())).thenReturn(Set.of(0, 1, 2, 3, 4, 5, 6, 7));
+
+        ownership.rebalance();
+
+        verify(store).release(eq("node-a"), argThat(shards -> shards.size() == 4));
+        verify(store, never()).acquire(any(), anyInt(), anyLong());
+        assertEquals(4, ownership.ownedShards().size());
+    }
+
+    @Test
+    void testTakesOverShardsWhenNodeLeaves() {
+        when(store.heartbeat(eq("node-a"), anyLong())).thenReturn(1);
+        when(store.renew(eq("node-a"), anyLong())).thenReturn(Set.of(0, 1, 2, 3));
+        when(store.acquire(eq("node-a"), eq(4), anyLong())).thenReturn(Set.of(4, 5, 6, 7));
+
+        ownership.rebalance();
+
+        assertEquals(Set.of(0, 1, 2, 3, 4, 5, 6, 7), ownership.ownedShards());
+    }
+
+    @Test
+    void testOwnsNothingUntilFirstHeartbeat() {
+        assertTrue(ownership.ownedShards().isEmpty());
+    }
+
+    @Test
+    void testShutdownHandsShardsOver() {
+        ownership.shutdown();
+
+        verify(store).leave("node-a");
+    }
+}
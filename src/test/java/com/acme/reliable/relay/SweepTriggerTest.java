@@ -0,0 +1,61 @@
+package com.acme.reliable.relay;
+
+import com.acme.reliable.config.RelayConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SweepTriggerTest {
+
+    private SweepLoops sweeper;
+    private SweepTrigger trigger;
+
+    @BeforeEach
+    void setUp() {
+        sweeper = mock(SweepLoops.class);
+        RelayConfig config = new RelayConfig();
+        config.setNotifyGrace(Duration.ofMillis(50));
+        trigger = new SweepTrigger(sweeper, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        trigger.shutdown();
+    }
+
+    @Test
+    void testBurstOfWakeupsIsCoalesced() {
+        for (int i = 0; i < 100; i++) {
+            trigger.wakeAfter(0);
+        }
+
+        assertTrue(trigger.pendingWakeups() <= 2);
+        verify(sweeper, timeout(1000).atLeastOnce()).wake();
+        verify(sweeper, after(200).atMost(2)).wake();
+    }
+
+    @Test
+    void testDelayedWakeupIsKeptAlongsideImmediateOne() {
+        trigger.wakeAfter(0);
+        trigger.wakeAfter(300);
+
+        verify(sweeper, timeout(200).times(1)).wake();
+        verify(sweeper, timeout(1000).times(2)).wake();
+    }
+
+    @Test
+    void testSweepFailureDoesNotStopLaterWakeups() {
+        doThrow(new RuntimeException("DB down")).doNothing().when(sweeper).wake();
+
+        trigger.wakeAfter(0);
+        verify(sweeper, timeout(1000).times(1)).wake();
+
+        trigger.wakeAfter(0);
+        verify(sweeper, timeout(1000).times(2)).wake();
+    }
+}
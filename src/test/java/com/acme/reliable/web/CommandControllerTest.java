@@ -1,6 +1,7 @@
 package com.acme.reliable.web;
 
 import com.acme.reliable.core.CommandBus;
+import com.acme.reliable.core.DuplicateCommandException;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.client.HttpClient;
@@ -103,6 +104,22 @@ class CommandControllerTest {
         );
     }
 
+    @Test
+    void testSubmitCommandReplayReturnsOriginalCommandId() {
+        UUID originalId = UUID.randomUUID();
+        when(commandBus.accept(anyString(), anyString(), anyString(), anyString(), anyMap()))
+                .thenThrow(new DuplicateCommandException(originalId, "SUCCEEDED"));
+
+        var request = HttpRequest.POST("/commands/CreateUser", "{}")
+                .header("Idempotency-Key", "replayed-key");
+
+        var response = client.toBlocking().exchange(request, String.class);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatus());
+        assertEquals(originalId.toString(), response.getHeaders().get("X-Command-Id"));
+        assertTrue(response.body().contains("SUCCEEDED"));
+    }
+
     @Test
     void testSubmitCommandMissingIdempotencyKey() {
         var request = HttpRequest.POST("/commands/CreateUser", "{}");
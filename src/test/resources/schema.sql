@@ -5,6 +5,18 @@ EXCEPTION
     WHEN duplicate_object THEN null;
 END $$;
 
+DO $$ BEGIN
+    CREATE TYPE outbox_status AS ENUM ('NEW','CLAIMED','PUBLISHED');
+EXCEPTION
+    WHEN duplicate_object THEN null;
+END $$;
+
+DO $$ BEGIN
+    CREATE TYPE outbox_category AS ENUM ('command','reply','event');
+EXCEPTION
+    WHEN duplicate_object THEN null;
+END $$;
+
 CREATE TABLE IF NOT EXISTS command (
   id uuid primary key,
   name text not null,
@@ -30,23 +42,81 @@ CREATE TABLE IF NOT EXISTS inbox (
 );
 
 CREATE TABLE IF NOT EXISTS outbox (
-  id uuid primary key,
-  category text not null,
+  id uuid not null,
+  category outbox_category not null,
   topic text not null,
   key text not null,
   type text not null,
   payload jsonb not null,
   headers jsonb not null default '{}'::jsonb,
-  status text not null default 'NEW',
+  status outbox_status not null default 'NEW',
   attempts int not null default 0,
-  next_at timestamptz,
+  next_at timestamptz not null default now(),
   claimed_by text,
+  claimed_until timestamptz,
   created_at timestamptz not null default now(),
   published_at timestamptz,
-  last_error text
+  last_error text,
+  shard smallint not null generated always as ((hashtext(key) & 2147483647) % 64) stored,
+  priority smallint not null default 1,
+  primary key (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- No default partition (see V4), so today and the next days need one
+DO $$
+DECLARE
+  d date;
+BEGIN
+  FOR d IN SELECT generate_series(current_date, current_date + 3, interval '1 day')::date LOOP
+    IF to_regclass('outbox_p' || to_char(d, 'YYYYMMDD')) IS NULL THEN
+      EXECUTE format('CREATE TABLE %I PARTITION OF outbox FOR VALUES FROM (%L) TO (%L) WITH (fillfactor = 80)',
+                     'outbox_p' || to_char(d, 'YYYYMMDD'), d, d + 1);
+    END IF;
+  END LOOP;
+END $$;
+
+CREATE INDEX IF NOT EXISTS outbox_dispatch_idx ON outbox (category, created_at) INCLUDE (next_at) WHERE status = 'NEW';
+CREATE INDEX IF NOT EXISTS outbox_claim_lease_idx ON outbox (claimed_until) WHERE status = 'CLAIMED';
+CREATE INDEX IF NOT EXISTS outbox_shard_dispatch_idx ON outbox (shard, category, created_at) INCLUDE (next_at) WHERE status = 'NEW';
+
+CREATE TABLE IF NOT EXISTS outbox_history (
+  id uuid not null,
+  category outbox_category not null,
+  topic text not null,
+  key text not null,
+  type text not null,
+  attempts int not null,
+  created_at timestamptz not null,
+  published_at timestamptz not null default now()
+) PARTITION BY RANGE (published_at);
+
+DO $$
+DECLARE
+  d date;
+BEGIN
+  FOR d IN SELECT generate_series(current_date, current_date + 3, interval '1 day')::date LOOP
+    IF to_regclass('outbox_history_p' || to_char(d, 'YYYYMMDD')) IS NULL THEN
+      EXECUTE format('CREATE TABLE %I PARTITION OF outbox_history FOR VALUES FROM (%L) TO (%L)',
+                     'outbox_history_p' || to_char(d, 'YYYYMMDD'), d, d + 1);
+    END IF;
+  END LOOP;
+END $$;
+
+CREATE INDEX IF NOT EXISTS outbox_history_id_idx ON outbox_history (id);
+CREATE INDEX IF NOT EXISTS outbox_history_published_idx ON outbox_history (published_at);
+
+CREATE TABLE IF NOT EXISTS relay_node (
+  node_id text primary key,
+  heartbeat_at timestamptz not null default now()
+);
+
+CREATE TABLE IF NOT EXISTS relay_shard (
+  shard smallint primary key,
+  owner text,
+  lease_until timestamptz
 );
 
-CREATE INDEX IF NOT EXISTS outbox_dispatch_idx ON outbox (status, coalesce(next_at, 'epoch'::timestamptz), created_at);
+INSERT INTO relay_shard(shard) SELECT generate_series(0, 63) ON CONFLICT DO NOTHING;
 
 CREATE TABLE IF NOT EXISTS command_dlq (
   id uuid primary key default gen_random_uuid(),
@@ -61,3 +131,10 @@ CREATE TABLE IF NOT EXISTS command_dlq (
   parked_by text not null,
   parked_at timestamptz not null default now()
 );
+
+DO $$
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM pg_publication WHERE pubname = 'outbox_pub') THEN
+    CREATE PUBLICATION outbox_pub FOR TABLE outbox WITH (publish = 'insert', publish_via_partition_root = true);
+  END IF;
+END $$;